@@ -2,8 +2,11 @@ package Booking.Controller;
 
 import Booking.Dto.Request.BookingCancelRequest;
 import Booking.Dto.Request.BookingRequest;
+import Booking.Dto.Response.BookingPageResponse;
 import Booking.Dto.Response.BookingResponse;
+import Booking.Entity.BookingStatus;
 import Booking.Service.BookingService;
+import Support.Service.IdempotencyStore;
 import User.DTO.Response.UserResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -22,13 +25,21 @@ public class BookingController {
     @Autowired
     private BookingService bookingService;
 
-    // Học sinh đặt lớp
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    // Học sinh đặt lớp; client gửi Idempotency-Key để bấm trùng / retry không tạo thêm booking
     @PostMapping
     @PreAuthorize("hasRole('STUDENT')")
     public ResponseEntity<BookingResponse> create(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestBody BookingRequest request) {
         UserResponse userResponse = (UserResponse) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        return ResponseEntity.ok(bookingService.createBooking(userResponse.getId(), request));
+        if (idempotencyKey == null) {
+            return ResponseEntity.ok(bookingService.createBooking(userResponse.getId(), request));
+        }
+        return ResponseEntity.ok(idempotencyStore.execute("booking:create", userResponse.getId(), idempotencyKey,
+                request, BookingResponse.class, () -> bookingService.createBooking(userResponse.getId(), request)));
     }
 
     // Xem danh sách đặt lớp của tôi (Gia sư hoặc Học sinh)
@@ -39,6 +50,18 @@ public class BookingController {
         return ResponseEntity.ok(bookingService.getMyBookings(userResponse.getId(), String.valueOf(userResponse.getRole())));
     }
 
+    // Danh sách có phân trang: trang đầu không gửi cursor, các trang sau gửi nextCursor cùng bộ lọc status
+    @GetMapping("/my-bookings/page")
+    @PreAuthorize("hasAnyRole('STUDENT', 'TUTOR')")
+    public ResponseEntity<BookingPageResponse> getMyBookingsPage(
+            @RequestParam(required = false) List<BookingStatus> status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        UserResponse userResponse = (UserResponse) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return ResponseEntity.ok(bookingService.getMyBookingsPage(
+                userResponse.getId(), String.valueOf(userResponse.getRole()), status, cursor, size));
+    }
+
     // Gia sư xác nhận dạy
     @PostMapping("/{id}/confirm")
     @PreAuthorize("hasRole('TUTOR')")
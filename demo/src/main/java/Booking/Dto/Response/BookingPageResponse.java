@@ -0,0 +1,18 @@
+package Booking.Dto.Response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingPageResponse {
+    private List<BookingResponse> items;
+    // null khi đã hết kết quả
+    private String nextCursor;
+}
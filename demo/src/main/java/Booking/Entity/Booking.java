@@ -14,7 +14,13 @@ import java.time.LocalDateTime;
 @Entity
 @Data
 @Builder
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        // Keyset phân trang danh sách booking của gia sư / học viên
+        @Index(name = "idx_bookings_tutor_created", columnList = "tutorId, createdAt, id"),
+        @Index(name = "idx_bookings_student_created", columnList = "studentId, createdAt, id"),
+        // Hàng chờ của lớp theo thứ tự đăng ký
+        @Index(name = "idx_bookings_class_status_created", columnList = "classId, status, createdAt, id")
+})
 public class Booking {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -59,6 +65,11 @@ public class Booking {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
+    // Optimistic lock: hai chuyển trạng thái đồng thời không ghi đè nhau
+    @Version
+    @Column(columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
     @OneToOne(mappedBy = "booking")
     private Review review;
 }
\ No newline at end of file
@@ -1,3 +1,27 @@
 package Booking.Entity;
 
-public enum BookingStatus { PENDING, CONFIRMED, TRIAL, CANCELLED, COMPLETED }
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+public enum BookingStatus {
+    PENDING, CONFIRMED, TRIAL, CANCELLED, COMPLETED, WAITLISTED;
+
+    // Bảng chuyển trạng thái hợp lệ; CANCELLED và COMPLETED là trạng thái cuối
+    // WAITLISTED chỉ lên PENDING khi được nhận chỗ (SeatAllocator), không confirm thẳng
+    private static final Map<BookingStatus, Set<BookingStatus>> TRANSITIONS = new EnumMap<>(BookingStatus.class);
+
+    static {
+        TRANSITIONS.put(WAITLISTED, EnumSet.of(PENDING, CANCELLED));
+        TRANSITIONS.put(PENDING, EnumSet.of(CONFIRMED, TRIAL, CANCELLED));
+        TRANSITIONS.put(TRIAL, EnumSet.of(CONFIRMED, COMPLETED, CANCELLED));
+        TRANSITIONS.put(CONFIRMED, EnumSet.of(COMPLETED, CANCELLED));
+        TRANSITIONS.put(CANCELLED, EnumSet.noneOf(BookingStatus.class));
+        TRANSITIONS.put(COMPLETED, EnumSet.noneOf(BookingStatus.class));
+    }
+
+    public boolean canTransitionTo(BookingStatus next) {
+        return TRANSITIONS.get(this).contains(next);
+    }
+}
@@ -2,11 +2,16 @@ package Booking.Repository;
 
 import Booking.Entity.Booking;
 import Booking.Entity.BookingStatus;
+import Booking.Entity.CancelledBy;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -17,13 +22,51 @@ public interface BookingRepository extends JpaRepository<Booking, String> {
     // Lấy danh sách cho gia sư
     List<Booking> findAllByTutorIdOrderByCreatedAtDesc(String tutorId);
 
+    // ================= KEYSET PAGE =================
+    // Trang kế tiếp sau cursor (createdAt, id), giảm dần; dùng index (tutorId|studentId, createdAt, id)
+
+    @Query("SELECT b.id AS id, b.classId AS classId, c.title AS className, " +
+            "su.fullName AS studentName, tu.fullName AS tutorName, " +
+            "b.status AS status, b.isTrial AS isTrial, b.createdAt AS createdAt " +
+            "FROM Booking b LEFT JOIN b.clazz c " +
+            "LEFT JOIN b.student s LEFT JOIN s.user su " +
+            "LEFT JOIN b.tutor t LEFT JOIN t.user tu " +
+            "WHERE b.tutorId = :tutorId AND b.status IN :statuses " +
+            "AND (b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+            "ORDER BY b.createdAt DESC, b.id DESC")
+    List<BookingSummary> findTutorBookingPage(
+            @Param("tutorId") String tutorId,
+            @Param("statuses") Collection<BookingStatus> statuses,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") String id,
+            Pageable pageable
+    );
+
+    @Query("SELECT b.id AS id, b.classId AS classId, c.title AS className, " +
+            "su.fullName AS studentName, tu.fullName AS tutorName, " +
+            "b.status AS status, b.isTrial AS isTrial, b.createdAt AS createdAt " +
+            "FROM Booking b LEFT JOIN b.clazz c " +
+            "LEFT JOIN b.student s LEFT JOIN s.user su " +
+            "LEFT JOIN b.tutor t LEFT JOIN t.user tu " +
+            "WHERE b.studentId = :studentId AND b.status IN :statuses " +
+            "AND (b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+            "ORDER BY b.createdAt DESC, b.id DESC")
+    List<BookingSummary> findStudentBookingPage(
+            @Param("studentId") String studentId,
+            @Param("statuses") Collection<BookingStatus> statuses,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") String id,
+            Pageable pageable
+    );
+
     long countByTutorIdAndStatus(String tutorId, BookingStatus status);
     long countByTutorId(String tutorId);
+    long countByClassIdAndStatusIn(String classId, Collection<BookingStatus> statuses);
 
     // Đếm active bookings (Cho logic không cho xóa lớp nếu còn booking)
     // Active thường là: PENDING, CONFIRMED, TRIAL (Tùy logic của bạn)
     @Query("SELECT COUNT(b) FROM Booking b WHERE b.classInfo.id = :classId " +
-            "AND b.status IN ('PENDING', 'CONFIRMED', 'TRIAL')")
+            "AND b.status IN ('PENDING', 'CONFIRMED', 'TRIAL', 'WAITLISTED')")
     long countActiveBookings(@Param("classId") String classId);
 
     // Lấy danh sách booking active (Để hủy lớp thì hủy luôn booking)
@@ -31,6 +74,41 @@ public interface BookingRepository extends JpaRepository<Booking, String> {
             "AND b.status IN ('PENDING', 'CONFIRMED', 'TRIAL')")
     List<Booking> findActiveBookingsByClassId(@Param("classId") String classId);
 
+    // ================= WAITLIST =================
+
+    // Hàng chờ của lớp: đăng ký sớm nhất đứng đầu
+    List<Booking> findByClassIdAndStatusOrderByCreatedAtAscIdAsc(String classId, BookingStatus status, Pageable pageable);
+
+    // Lớp còn chỗ nhưng vẫn có người chờ (chỗ trả ở node khác khi bộ đếm trong bộ nhớ còn cũ)
+    @Query("SELECT DISTINCT b.classId FROM Booking b JOIN b.clazz c " +
+            "WHERE b.status = :waitlisted AND (c.maxStudents IS NULL OR COALESCE(c.seatsTaken, 0) < c.maxStudents)")
+    List<String> findClassIdsWithOpenSeatsAndWaitlist(@Param("waitlisted") BookingStatus waitlisted, Pageable pageable);
+
+    // ================= BULK CANCEL =================
+
+    // (studentId, userId) của học viên có booking thuộc các trạng thái cho trước trong lớp: một truy vấn cho cả lớp
+    @Query("SELECT DISTINCT b.studentId AS studentId, u.id AS userId FROM Booking b " +
+            "JOIN b.student s JOIN s.user u " +
+            "WHERE b.classId = :classId AND b.status IN :statuses")
+    List<ClassStudentRef> findStudentRefsByClassId(
+            @Param("classId") String classId,
+            @Param("statuses") Collection<BookingStatus> statuses
+    );
+
+    // Hủy mọi booking đang hoạt động của lớp trong một câu UPDATE (bulk update không qua @UpdateTimestamp)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = :cancelled, b.cancelReason = :reason, " +
+            "b.cancelledBy = :cancelledBy, b.updatedAt = :now, b.version = COALESCE(b.version, 0) + 1 " +
+            "WHERE b.classId = :classId AND b.status IN :statuses")
+    int cancelBookingsByClassId(
+            @Param("classId") String classId,
+            @Param("statuses") Collection<BookingStatus> statuses,
+            @Param("cancelled") BookingStatus cancelled,
+            @Param("reason") String reason,
+            @Param("cancelledBy") CancelledBy cancelledBy,
+            @Param("now") LocalDateTime now
+    );
+
     // Check xem user (student) có booking nào đã confirm trong lớp này chưa
     // Cần join bảng StudentProfile nếu Booking lưu studentId
     @Query("SELECT CASE WHEN COUNT(b) > 0 THEN TRUE ELSE FALSE END " +
@@ -68,4 +146,23 @@ public interface BookingRepository extends JpaRepository<Booking, String> {
             @Param("studentId") String studentId,
             @Param("statuses") List<BookingStatus> statuses
     );
+
+    // [tutorId, total, completed, cancelled] của mọi gia sư trong một lần GROUP BY (job đối soát counter)
+    @Query("SELECT b.tutorId, COUNT(b), " +
+            "SUM(CASE WHEN b.status = :completed THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN b.status = :cancelled THEN 1 ELSE 0 END) " +
+            "FROM Booking b GROUP BY b.tutorId")
+    List<Object[]> countBookingsGroupByTutor(
+            @Param("completed") BookingStatus completed,
+            @Param("cancelled") BookingStatus cancelled
+    );
+
+    // [studentId, subjectId, tutorId, count] của nhiều học viên một lúc (StudentPreference)
+    @Query("SELECT b.studentId, c.subjectId, b.tutorId, COUNT(b) FROM Booking b LEFT JOIN b.clazz c " +
+            "WHERE b.studentId IN :studentIds AND b.status IN :statuses " +
+            "GROUP BY b.studentId, c.subjectId, b.tutorId")
+    List<Object[]> countTakenBookingsByStudentIds(
+            @Param("studentIds") Collection<String> studentIds,
+            @Param("statuses") List<BookingStatus> statuses
+    );
 }
@@ -0,0 +1,19 @@
+package Booking.Repository;
+
+import Booking.Entity.BookingStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection cho danh sách booking: chỉ các cột BookingResponse cần, không load entity và các quan hệ của nó.
+ */
+public interface BookingSummary {
+    String getId();
+    String getClassId();
+    String getClassName();
+    String getStudentName();
+    String getTutorName();
+    BookingStatus getStatus();
+    Boolean getIsTrial();
+    LocalDateTime getCreatedAt();
+}
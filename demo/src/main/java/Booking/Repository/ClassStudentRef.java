@@ -0,0 +1,9 @@
+package Booking.Repository;
+
+/**
+ * Projection (studentId, userId của học viên) cho các booking của một lớp, dùng để gửi thông báo hàng loạt.
+ */
+public interface ClassStudentRef {
+    String getStudentId();
+    String getUserId();
+}
@@ -0,0 +1,31 @@
+package Booking.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Cursor phân trang danh sách booking theo (createdAt, id) giảm dần: vị trí booking cuối của trang trước.
+ * Client chỉ thấy chuỗi base64 (opaque).
+ */
+public record BookingCursor(LocalDateTime createdAt, String id) {
+
+    // Trang đầu: mọi booking đều đứng "sau" mốc này
+    static final BookingCursor FIRST = new BookingCursor(LocalDateTime.of(9999, 12, 31, 0, 0), "");
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BookingCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator <= 0) throw new IllegalArgumentException();
+            return new BookingCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package Booking.Service;
 
 import Booking.Dto.Request.BookingRequest;
+import Booking.Dto.Response.BookingPageResponse;
 import Booking.Dto.Response.BookingResponse;
+import Booking.Entity.BookingStatus;
 
 import java.util.List;
 
 public interface BookingService {
     BookingResponse createBooking(String userId, BookingRequest request);
     List<BookingResponse> getMyBookings(String userId, String role);
+    BookingPageResponse getMyBookingsPage(String userId, String role, List<BookingStatus> statuses, String cursor, int size);
     void cancelBooking(String userId, String role, String bookingId, String reason);
     void confirmBooking(String userId, String bookingId);
     void completeBooking(String userId, String role, String bookingId);
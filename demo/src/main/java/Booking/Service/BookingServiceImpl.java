@@ -1,15 +1,23 @@
 package Booking.Service;
 
 import Booking.Dto.Request.BookingRequest;
+import Booking.Dto.Response.BookingPageResponse;
 import Booking.Dto.Response.BookingResponse;
 import Booking.Entity.Booking;
 import Booking.Entity.BookingStatus;
 import Booking.Entity.CancelledBy;
 import Booking.Repository.BookingRepository;
+import Booking.Repository.BookingSummary;
 import Class.Repository.ClassRepository;
-import Support.Entity.Schedule;
-import Support.Entity.ScheduleStatus;
+import Config.ConflictRetryExecutor;
+import Support.Index.TimeRange;
+import Support.Index.TutorChangedEvent;
+import Support.Index.TutorScheduleChangedEvent;
+import Support.Index.TutorScheduleIndex;
+import Support.Outbox.OutboxPublisher;
+import Support.Preference.StudentPreferenceChangedEvent;
 import Support.Repository.ScheduleRepository;
+import Support.Service.ScheduleMaterializer;
 import User.Entity.StudentProfile;
 import User.Entity.TutorProfile;
 import User.Repository.StudentProfileRepository;
@@ -17,17 +25,23 @@ import User.Repository.TutorProfileRepository;
 import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 
 @Service
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class BookingServiceImpl implements BookingService {
 
+    static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     BookingRepository bookingRepository;
 
@@ -43,6 +57,21 @@ public class BookingServiceImpl implements BookingService {
     @Autowired
     ScheduleRepository scheduleRepository; // Bảng lưu lịch học cụ thể
 
+    @Autowired
+    ScheduleMaterializer scheduleMaterializer;
+
+    @Autowired
+    TutorScheduleIndex tutorScheduleIndex;
+
+    @Autowired
+    OutboxPublisher outboxPublisher;
+
+    @Autowired
+    ConflictRetryExecutor conflictRetry;
+
+    @Autowired
+    SeatAllocator seatAllocator;
+
     @Override
     @Transactional
     public BookingResponse createBooking(String userId, BookingRequest request) {
@@ -55,12 +84,17 @@ public class BookingServiceImpl implements BookingService {
                 .orElseThrow(() -> new RuntimeException("Class not found"));
 
 
-        // 3. Tạo Booking mới
+        tutorRepository.addBookingCounters(clazz.getTutorId(), 1, 0, 0);
+
+        // 3. Giữ chỗ (câu ghi cuối cùng trước commit để row lock của lớp giữ ngắn); lớp kín thì vào hàng chờ
+        BookingStatus status = seatAllocator.tryReserve(clazz.getId()) ? BookingStatus.PENDING : BookingStatus.WAITLISTED;
+
+        // 4. Tạo Booking mới
         Booking booking = Booking.builder()
                 .classId(clazz.getId())
                 .studentId(student.getId())
                 .tutorId(clazz.getTutorId())
-                .status(BookingStatus.PENDING)
+                .status(status)
                 .isTrial(request.getIsTrial())
                 .requestedHoursPerWeek(request.getRequestedHoursPerWeek())
                 .noteFromStudent(request.getNoteFromStudent())
@@ -84,8 +118,54 @@ public class BookingServiceImpl implements BookingService {
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
+    public BookingPageResponse getMyBookingsPage(String userId, String role, List<BookingStatus> statuses,
+                                                 String cursor, int size) {
+        BookingCursor position = cursor != null && !cursor.isBlank() ? BookingCursor.decode(cursor) : BookingCursor.FIRST;
+        Collection<BookingStatus> filter = statuses != null && !statuses.isEmpty()
+                ? statuses : EnumSet.allOf(BookingStatus.class);
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // Lấy dư 1 dòng để biết còn trang sau
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<BookingSummary> rows;
+        if ("TUTOR".equals(role)) {
+            TutorProfile tutor = tutorRepository.findByUserId(userId);
+            rows = bookingRepository.findTutorBookingPage(
+                    tutor.getId(), filter, position.createdAt(), position.id(), limit);
+        } else {
+            StudentProfile student = studentRepository.findByUserId(userId)
+                    .orElseThrow(() -> new RuntimeException("Student not found"));
+            rows = bookingRepository.findStudentBookingPage(
+                    student.getId(), filter, position.createdAt(), position.id(), limit);
+        }
+
+        boolean hasNext = rows.size() > pageSize;
+        List<BookingSummary> page = hasNext ? rows.subList(0, pageSize) : rows;
+        BookingSummary last = hasNext ? page.get(page.size() - 1) : null;
+        return BookingPageResponse.builder()
+                .items(page.stream().map(this::mapToResponse).toList())
+                .nextCursor(last != null ? new BookingCursor(last.getCreatedAt(), last.getId()).encode() : null)
+                .build();
+    }
+
+    // Mỗi chuyển trạng thái chạy trong transaction riêng, xung đột @Version thì đọc lại và làm lại
+    @Override
     public void cancelBooking(String userId, String role, String bookingId, String reason) {
+        conflictRetry.run("booking.cancel", () -> doCancelBooking(userId, role, bookingId, reason));
+    }
+
+    @Override
+    public void confirmBooking(String userId, String bookingId) {
+        conflictRetry.run("booking.confirm", () -> doConfirmBooking(userId, bookingId));
+    }
+
+    @Override
+    public void completeBooking(String userId, String role, String bookingId) {
+        conflictRetry.run("booking.complete", () -> doCompleteBooking(userId, role, bookingId));
+    }
+
+    private void doCancelBooking(String userId, String role, String bookingId, String reason) {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
 
@@ -100,97 +180,126 @@ public class BookingServiceImpl implements BookingService {
             booking.setCancelledBy(CancelledBy.STUDENT);
         }
 
-        booking.setStatus(BookingStatus.CANCELLED);
+        BookingStatus previous = booking.getStatus();
+        transition(booking, BookingStatus.CANCELLED);
         booking.setCancelReason(reason);
         bookingRepository.save(booking);
 
+        // Trả chỗ: người đầu hàng chờ được nhận chỗ ngay trong transaction này
+        if (SeatAllocator.SEAT_HOLDING_STATUSES.contains(previous)) {
+            seatAllocator.release(booking.getClassId());
+        }
+
         // Xóa các lịch học tương lai khi bị hủy
         scheduleRepository.deleteByBookingId(bookingId);
+        outboxPublisher.broadcast(new TutorScheduleChangedEvent(booking.getTutorId()));
 
-        // Cập nhật lại uy tín gia sư
-        recalculateTutorStats(booking.getTutorId());
+        // Cập nhật lại uy tín gia sư (gộp và tính lại bất đồng bộ sau commit)
+        if (updateBookingCounters(booking.getTutorId(), previous, BookingStatus.CANCELLED)) {
+            outboxPublisher.publish(new TutorStatsChangedEvent(booking.getTutorId()));
+        }
+        outboxPublisher.broadcast(new StudentPreferenceChangedEvent(booking.getStudentId()));
     }
 
-    @Override
-    @Transactional
-    public void confirmBooking(String userId, String bookingId) {
+    private void doConfirmBooking(String userId, String bookingId) {
+        // Khóa gia sư trước mọi lần đọc khác: các lần confirm đồng thời của cùng gia sư chạy lần lượt,
+        // và snapshot của transaction (REPEATABLE READ) được tạo sau khi lần trước đã commit
+        TutorProfile tutor = tutorRepository.findByUserIdForUpdate(userId);
+        if (tutor == null) throw new RuntimeException("Forbidden");
+
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
 
         // Kiểm tra quyền (chỉ gia sư của lớp này mới được confirm)
-        TutorProfile tutor = tutorRepository.findByUserId(userId);
         if (!booking.getTutorId().equals(tutor.getId())) throw new RuntimeException("Forbidden");
 
-        booking.setStatus(BookingStatus.CONFIRMED);
+        // Booking trong hàng chờ chưa có chỗ: bảng chuyển trạng thái không cho WAITLISTED -> CONFIRMED
+        BookingStatus previous = booking.getStatus();
+        transition(booking, BookingStatus.CONFIRMED);
+
+        // Không cho trùng lịch với các lớp khác của gia sư (lịch của chính lớp này được bỏ qua)
+        List<TimeRange> sessions = scheduleMaterializer.plan(booking);
+        List<TimeRange> conflicts = tutorScheduleIndex.conflictsForUpdate(
+                booking.getTutorId(), sessions, booking.getClassId());
+        if (!conflicts.isEmpty()) {
+            throw new RuntimeException("Schedule conflict at " + conflicts.get(0).start());
+        }
+
         bookingRepository.save(booking);
 
-        // Logic tạo Schedule tự động cho 4 tuần tới (giống file .ts)
-        generateInitialSchedules(booking);
+        // Tạo Schedule cho cửa sổ horizon (JDBC batch), ScheduleMaterializer tự nối thêm các tuần sau
+        scheduleMaterializer.materialize(booking, sessions);
+        outboxPublisher.broadcast(new TutorScheduleChangedEvent(booking.getTutorId()));
+
+        // Cập nhật counter nếu chuyển trạng thái làm đổi completed/cancelled
+        if (updateBookingCounters(booking.getTutorId(), previous, BookingStatus.CONFIRMED)) {
+            outboxPublisher.publish(new TutorStatsChangedEvent(booking.getTutorId()));
+        }
+        outboxPublisher.broadcast(new StudentPreferenceChangedEvent(booking.getStudentId()));
     }
 
-    @Override
-    @Transactional
-    public void completeBooking(String userId, String role, String bookingId) {
+    private void doCompleteBooking(String userId, String role, String bookingId) {
         Booking booking = bookingRepository.findById(bookingId).get();
 
-        booking.setStatus(BookingStatus.COMPLETED);
+        BookingStatus previous = booking.getStatus();
+        transition(booking, BookingStatus.COMPLETED);
         bookingRepository.save(booking);
 
         // Xóa các lịch học dự kiến còn lại
         scheduleRepository.deleteByBookingId(bookingId);
+        outboxPublisher.broadcast(new TutorScheduleChangedEvent(booking.getTutorId()));
 
-        // Gọi hàm tính lại chỉ số uy tín (Trust Score) cho gia sư
-        recalculateTutorStats(booking.getTutorId());
+        // Đưa gia sư vào hàng đợi tính lại chỉ số uy tín (Trust Score)
+        if (updateBookingCounters(booking.getTutorId(), previous, BookingStatus.COMPLETED)) {
+            outboxPublisher.publish(new TutorStatsChangedEvent(booking.getTutorId()));
+        }
+        outboxPublisher.broadcast(new StudentPreferenceChangedEvent(booking.getStudentId()));
     }
 
-    private void generateInitialSchedules(Booking booking) {
-        // Logic giả định: Lấy ngày bắt đầu và cộng thêm 4 tuần
-        LocalDateTime startDate = booking.getStartDateExpected();
-        for (int i = 0; i < 4; i++) {
-            Schedule session = new Schedule();
-            session.setBookingId(booking.getId());
-            session.setTutorId(booking.getTutorId());
-            session.setStudentId(booking.getStudentId());
-            session.setStartTime(startDate.plusWeeks(i)); // Tạm thời lấy giờ từ startDate
-            session.setEndTime(startDate.plusWeeks(i).plusHours(2)); // Mặc định 2 tiếng
-            session.setStatus(ScheduleStatus.ACTIVE);
-            scheduleRepository.save(session);
+    // Chỉ cho phép các chuyển trạng thái có trong bảng BookingStatus
+    private void transition(Booking booking, BookingStatus next) {
+        BookingStatus current = booking.getStatus();
+        if (current != null && !current.canTransitionTo(next)) {
+            throw new RuntimeException("Invalid booking status transition: " + current + " -> " + next);
         }
+        booking.setStatus(next);
     }
 
-    // Hàm hỗ trợ tìm ngày theo DayOfWeek (giống getDateByDayOfWeek trong file .ts)
-    private LocalDateTime getDateForWeek(LocalDateTime base, int targetDayOfWeek) {
-        int currentDay = base.getDayOfWeek().getValue() % 7; // Chuyển về 0 (CN) -> 6 (T7)
-        int diff = (targetDayOfWeek + 7 - currentDay) % 7;
-        return base.plusDays(diff);
+    /**
+     * Cộng dồn counter completed/cancelled của gia sư theo chuyển trạng thái booking
+     * bằng một câu UPDATE ... SET x = x + delta, thay cho việc đếm lại cả bảng bookings.
+     * Trả về true nếu có counter thay đổi (cần tính lại trust score).
+     */
+    private boolean updateBookingCounters(String tutorId, BookingStatus from, BookingStatus to) {
+        if (from == to) return false;
+        int completed = (to == BookingStatus.COMPLETED ? 1 : 0) - (from == BookingStatus.COMPLETED ? 1 : 0);
+        int cancelled = (to == BookingStatus.CANCELLED ? 1 : 0) - (from == BookingStatus.CANCELLED ? 1 : 0);
+        if (completed == 0 && cancelled == 0) return false;
+        tutorRepository.addBookingCounters(tutorId, 0, completed, cancelled);
+        return true;
     }
 
     @Transactional
     public void recalculateTutorStats(String tutorId) {
-        TutorProfile tutor = tutorRepository.findById(tutorId)
+        // 1. Đọc counter đã được cộng dồn ở từng chuyển trạng thái (TutorStatsReconciler sửa lệch định kỳ)
+        Object[] counters = tutorRepository.findBookingCounters(tutorId).stream().findFirst()
                 .orElseThrow(() -> new RuntimeException("Tutor profile not found"));
+        long completedCount = counters[0] != null ? ((Number) counters[0]).longValue() : 0;
+        long cancelledCount = counters[1] != null ? ((Number) counters[1]).longValue() : 0;
 
-        // 1. Đếm tổng số booking theo từng trạng thái
-        long completedCount = bookingRepository.countByTutorIdAndStatus(tutorId, BookingStatus.COMPLETED);
-        long cancelledCount = bookingRepository.countByTutorIdAndStatus(tutorId, BookingStatus.CANCELLED);
-        long totalBookings = bookingRepository.countByTutorId(tutorId);
+        // 2. Chỉ ghi trustScore, counter đã nằm sẵn trong DB
+        tutorRepository.updateTrustScore(tutorId, trustScore(completedCount, cancelledCount), LocalDateTime.now());
+        outboxPublisher.broadcast(new TutorChangedEvent(tutorId));
+    }
 
-        // 2. Tính toán Trust Score (Điểm uy tín)
+    // Tính toán Trust Score (Điểm uy tín), dùng chung với TrustScoreRecomputeQueue
+    static double trustScore(long completedCount, long cancelledCount) {
         // Công thức ví dụ: Điểm gốc 100, mỗi lần hoàn thành +2, mỗi lần bị hủy bởi gia sư -10
         double baseScore = 50.0; // Điểm khởi đầu
         double finalScore = baseScore + (completedCount * 2) - (cancelledCount * 5);
 
         // Giới hạn trong khoảng 0 - 100
-        finalScore = Math.max(0, Math.min(100, finalScore));
-
-        // 3. Cập nhật vào Entity
-        tutor.setTotalCompletedBookings((int) completedCount);
-        tutor.setTotalCancelledBookings((int) cancelledCount);
-        tutor.setTotalBookings((int) totalBookings);
-        tutor.setTrustScore(finalScore);
-        tutor.setLastTrustScoreUpdatedAt(LocalDateTime.now());
-
-        tutorRepository.save(tutor);
+        return Math.max(0, Math.min(100, finalScore));
     }
 
     private BookingResponse mapToResponse(Booking b) {
@@ -201,4 +310,17 @@ public class BookingServiceImpl implements BookingService {
                 .createdAt(b.getCreatedAt())
                 .build();
     }
+
+    private BookingResponse mapToResponse(BookingSummary b) {
+        return BookingResponse.builder()
+                .id(b.getId())
+                .classId(b.getClassId())
+                .className(b.getClassName())
+                .studentName(b.getStudentName())
+                .tutorName(b.getTutorName())
+                .status(b.getStatus())
+                .isTrial(b.getIsTrial())
+                .createdAt(b.getCreatedAt())
+                .build();
+    }
 }
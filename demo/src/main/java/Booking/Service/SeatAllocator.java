@@ -0,0 +1,271 @@
+package Booking.Service;
+
+import Booking.Entity.Booking;
+import Booking.Entity.BookingStatus;
+import Booking.Repository.BookingRepository;
+import Class.Repository.ClassRepository;
+import Support.Outbox.OutboxPublisher;
+import Support.Preference.StudentPreferenceChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+
+/**
+ * Giữ chỗ cho lớp nhóm có giới hạn maxStudents.
+ * Nguồn sự thật là câu UPDATE có điều kiện trên classes.seatsTaken (chỉ tăng khi còn chỗ), nên không bao giờ vượt sức chứa
+ * kể cả khi chạy nhiều node. Phía trước là bộ đếm chỗ trống trong bộ nhớ chia thành nhiều stripe: khi lớp đã kín,
+ * hàng trăm request lúc mở lớp bị chuyển sang hàng chờ ngay mà không tranh row lock của lớp.
+ * Bộ đếm chỉ là ước lượng, hết hạn sau counter-ttl-seconds để đồng bộ lại với DB.
+ * Chỗ được trả lại thì chuyển thẳng cho người đầu hàng chờ (WAITLISTED -> PENDING), không qua bộ đếm;
+ * sweepWaitlists định kỳ lấp những chỗ trống mà bộ đếm cũ đã bỏ qua.
+ * Metric: booking.seats.reservations (tag outcome), booking.waitlist.promoted.
+ */
+@Component
+@Slf4j
+public class SeatAllocator {
+
+    // Các trạng thái đang giữ một chỗ trong lớp
+    public static final List<BookingStatus> SEAT_HOLDING_STATUSES =
+            List.of(BookingStatus.PENDING, BookingStatus.CONFIRMED, BookingStatus.TRIAL);
+
+    private final ClassRepository classRepository;
+    private final BookingRepository bookingRepository;
+    private final OutboxPublisher outboxPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int stripes;
+    private final int sweepBatchSize;
+    private final Cache<String, SeatCounter> counters;
+
+    private final Counter reservedInDb;
+    private final Counter rejectedInMemory;
+    private final Counter rejectedInDb;
+    private final Counter promoted;
+
+    public SeatAllocator(ClassRepository classRepository,
+                         BookingRepository bookingRepository,
+                         OutboxPublisher outboxPublisher,
+                         TransactionTemplate transactionTemplate,
+                         MeterRegistry registry,
+                         @Value("${booking.seats.stripes:8}") int stripes,
+                         @Value("${booking.seats.cache-size:10000}") long cacheSize,
+                         @Value("${booking.seats.counter-ttl-seconds:30}") long counterTtlSeconds,
+                         @Value("${booking.seats.sweep-batch-size:100}") int sweepBatchSize) {
+        this.classRepository = classRepository;
+        this.bookingRepository = bookingRepository;
+        this.outboxPublisher = outboxPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.sweepBatchSize = Math.max(1, sweepBatchSize);
+        this.stripes = Math.max(1, stripes);
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(counterTtlSeconds))
+                .build();
+
+        this.reservedInDb = reservations(registry, "reserved");
+        this.rejectedInMemory = reservations(registry, "full_in_memory");
+        this.rejectedInDb = reservations(registry, "full_in_db");
+        this.promoted = Counter.builder("booking.waitlist.promoted")
+                .description("Waitlisted bookings promoted into a released seat")
+                .register(registry);
+    }
+
+    // ================= RESERVE =================
+
+    /**
+     * Giữ một chỗ trong transaction hiện tại. Trả về false nếu lớp đã kín (booking nên vào hàng chờ).
+     * Nên gọi ngay trước khi lưu booking để row lock của lớp chỉ giữ trong khoảng ngắn tới commit.
+     */
+    public boolean tryReserve(String classId) {
+        SeatCounter counter = counter(classId);
+        if (counter != null && !counter.tryAcquire()) {
+            rejectedInMemory.increment();
+            return false;
+        }
+        if (classRepository.tryTakeSeat(classId) == 0) {
+            // DB đã kín (chỗ bị node khác lấy): đánh dấu hết chỗ cho tới lần đồng bộ sau
+            if (counter != null) counter.drain();
+            rejectedInDb.increment();
+            return false;
+        }
+        reservedInDb.increment();
+        if (counter != null) {
+            // Transaction rollback thì trả lại permit đã lấy trong bộ nhớ
+            afterCompletion(committed -> {
+                if (!committed) counter.release();
+            });
+        }
+        return true;
+    }
+
+    // ================= RELEASE =================
+
+    /**
+     * Trả lại chỗ của một booking vừa rời lớp (trong transaction hiện tại).
+     * Còn người chờ thì chỗ được chuyển cho người đầu hàng chờ, seatsTaken giữ nguyên.
+     */
+    public void release(String classId) {
+        if (promoteNext(classId)) return;
+        if (classRepository.releaseSeat(classId) > 0) {
+            SeatCounter counter = counters.getIfPresent(classId);
+            if (counter != null) {
+                afterCompletion(committed -> {
+                    if (committed) counter.release();
+                });
+            }
+        }
+    }
+
+    /**
+     * Lấp chỗ mới (ví dụ gia sư tăng maxStudents) bằng người trong hàng chờ, theo thứ tự đăng ký.
+     */
+    public int fillFromWaitlist(String classId) {
+        int filled = 0;
+        for (Booking head : nextWaitlisted(classId, 50)) {
+            if (classRepository.tryTakeSeat(classId) == 0) break;
+            promote(head);
+            filled++;
+        }
+        invalidate(classId);
+        return filled;
+    }
+
+    /**
+     * Bỏ bộ đếm của lớp sau commit (đổi sức chứa, hủy lớp) để lần sau đọc lại từ DB.
+     */
+    public void invalidate(String classId) {
+        afterCompletion(committed -> counters.invalidate(classId));
+    }
+
+    // ================= WAITLIST =================
+
+    /**
+     * Lấp chỗ trống còn sót cho các lớp có người chờ, mỗi lớp một transaction ngắn.
+     */
+    @Scheduled(fixedDelayString = "${booking.seats.sweep-interval-ms:30000}")
+    public void sweepWaitlists() {
+        List<String> classIds = bookingRepository.findClassIdsWithOpenSeatsAndWaitlist(
+                BookingStatus.WAITLISTED, PageRequest.of(0, sweepBatchSize));
+        for (String classId : classIds) {
+            try {
+                Integer filled = transactionTemplate.execute(status -> fillFromWaitlist(classId));
+                if (filled != null && filled > 0) log.info("Promoted {} waitlisted bookings in class {}", filled, classId);
+            } catch (RuntimeException e) {
+                // Xung đột với một lần trả chỗ đồng thời: lần quét sau làm lại
+                log.warn("Waitlist sweep failed for class {}", classId, e);
+            }
+        }
+    }
+
+    private boolean promoteNext(String classId) {
+        List<Booking> head = nextWaitlisted(classId, 1);
+        if (head.isEmpty()) return false;
+        // Hai lần trả chỗ đồng thời cùng chọn một người: @Version làm một bên xung đột và ConflictRetryExecutor chạy lại
+        promote(head.get(0));
+        return true;
+    }
+
+    private List<Booking> nextWaitlisted(String classId, int limit) {
+        return bookingRepository.findByClassIdAndStatusOrderByCreatedAtAscIdAsc(
+                classId, BookingStatus.WAITLISTED, PageRequest.of(0, limit));
+    }
+
+    private void promote(Booking booking) {
+        booking.setStatus(BookingStatus.PENDING);
+        bookingRepository.save(booking);
+        promoted.increment();
+
+        String studentUserId = booking.getStudent() != null ? booking.getStudent().getUser().getId() : null;
+        outboxPublisher.publish(new WaitlistPromotedEvent(booking.getId(), booking.getClassId(), studentUserId));
+        outboxPublisher.broadcast(new StudentPreferenceChangedEvent(booking.getStudentId()));
+    }
+
+    // ================= COUNTERS =================
+
+    // null = lớp không giới hạn chỗ (hoặc không tồn tại), chỉ dựa vào câu UPDATE
+    private SeatCounter counter(String classId) {
+        SeatCounter counter = counters.get(classId, id -> classRepository.findSeatState(id).stream()
+                .findFirst()
+                .map(row -> row[0] == null
+                        ? SeatCounter.UNLIMITED
+                        : new SeatCounter(stripes, ((Number) row[0]).intValue()
+                        - (row[1] != null ? ((Number) row[1]).intValue() : 0)))
+                .orElse(SeatCounter.UNLIMITED));
+        return counter == SeatCounter.UNLIMITED ? null : counter;
+    }
+
+    private static void afterCompletion(Consumer<Boolean> callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.accept(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private static Counter reservations(MeterRegistry registry, String outcome) {
+        return Counter.builder("booking.seats.reservations")
+                .description("Seat reservation attempts by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * Số chỗ trống của một lớp, chia đều vào các stripe để các request đồng thời CAS trên ô khác nhau.
+     * Lấy chỗ bắt đầu từ một stripe ngẫu nhiên rồi quét vòng, nên chỉ báo hết khi mọi stripe đều bằng 0.
+     */
+    static final class SeatCounter {
+
+        static final SeatCounter UNLIMITED = new SeatCounter(1, 0);
+
+        private final AtomicIntegerArray free;
+
+        SeatCounter(int stripes, int seats) {
+            this.free = new AtomicIntegerArray(stripes);
+            int remaining = Math.max(0, seats);
+            for (int i = 0; i < stripes; i++) {
+                free.set(i, remaining / stripes + (i < remaining % stripes ? 1 : 0));
+            }
+        }
+
+        boolean tryAcquire() {
+            int n = free.length();
+            int start = ThreadLocalRandom.current().nextInt(n);
+            for (int i = 0; i < n; i++) {
+                int stripe = (start + i) % n;
+                int current;
+                while ((current = free.get(stripe)) > 0) {
+                    if (free.compareAndSet(stripe, current, current - 1)) return true;
+                }
+            }
+            return false;
+        }
+
+        void release() {
+            free.incrementAndGet(ThreadLocalRandom.current().nextInt(free.length()));
+        }
+
+        void drain() {
+            for (int i = 0; i < free.length(); i++) free.set(i, 0);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package Booking.Service;
+
+import Support.Index.TutorChangedEvent;
+import Support.Outbox.OutboxPublisher;
+import Support.Outbox.OutboxSubscriber;
+import User.Repository.TutorProfileRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hàng đợi tính lại trust score, gộp theo tutorId.
+ * Mỗi gia sư chỉ có một entry: nhiều thay đổi liên tiếp chỉ dời mốc debounce, và gia sư được xử lý khi
+ * đã yên lặng đủ debounce-ms (hoặc đã chờ quá max-delay-ms). Gia sư sẵn sàng được gom thành batch,
+ * mỗi batch đọc counter bằng một câu truy vấn rồi ghi trên trustScoreExecutor (1 thread nên các batch không chồng nhau).
+ * Metric: booking.trust.queue.depth, booking.trust.recompute.lag (từ lần thay đổi đầu tiên tới lúc ghi xong),
+ * booking.trust.recompute.batch.
+ */
+@Component
+@Slf4j
+public class TrustScoreRecomputeQueue implements OutboxSubscriber<TutorStatsChangedEvent> {
+
+    private final TutorProfileRepository tutorRepository;
+    private final OutboxPublisher outboxPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor trustScoreExecutor;
+
+    private final long debounceNanos;
+    private final long maxDelayNanos;
+    private final int batchSize;
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    private final Timer lag;
+    private final Timer batchDuration;
+
+    public TrustScoreRecomputeQueue(TutorProfileRepository tutorRepository,
+                                    OutboxPublisher outboxPublisher,
+                                    TransactionTemplate transactionTemplate,
+                                    ThreadPoolTaskExecutor trustScoreExecutor,
+                                    MeterRegistry registry,
+                                    @Value("${booking.trust.debounce-ms:2000}") long debounceMs,
+                                    @Value("${booking.trust.max-delay-ms:30000}") long maxDelayMs,
+                                    @Value("${booking.trust.batch-size:200}") int batchSize) {
+        this.tutorRepository = tutorRepository;
+        this.outboxPublisher = outboxPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.trustScoreExecutor = trustScoreExecutor;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMs);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(debounceMs, maxDelayMs));
+        this.batchSize = Math.max(1, batchSize);
+
+        Gauge.builder("booking.trust.queue.depth", pending, Map::size)
+                .description("Tutors waiting for a trust score recompute")
+                .register(registry);
+        this.lag = Timer.builder("booking.trust.recompute.lag")
+                .description("Time from the first queued change to the trust score being written")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        this.batchDuration = Timer.builder("booking.trust.recompute.batch")
+                .description("Time spent recomputing one batch of tutors")
+                .register(registry);
+    }
+
+    // ================= ENQUEUE =================
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTutorStatsChanged(TutorStatsChangedEvent event) {
+        enqueue(event.tutorId());
+    }
+
+    // Event từ outbox (Booking/Class service) tới theo lô
+    @Override
+    public Class<TutorStatsChangedEvent> eventType() {
+        return TutorStatsChangedEvent.class;
+    }
+
+    @Override
+    public void onEvents(List<TutorStatsChangedEvent> events) {
+        events.forEach(event -> enqueue(event.tutorId()));
+    }
+
+    public void enqueue(String tutorId) {
+        long now = System.nanoTime();
+        // Giữ mốc đầu tiên để đo lag, chỉ dời mốc cuối để debounce
+        pending.merge(tutorId, new Pending(now, now), (old, ignored) -> new Pending(old.firstNanos(), now));
+    }
+
+    // ================= FLUSH =================
+
+    @Scheduled(fixedDelayString = "${booking.trust.flush-interval-ms:500}")
+    public void flush() {
+        List<Map.Entry<String, Pending>> ready = drain(false);
+        for (int from = 0; from < ready.size(); from += batchSize) {
+            List<Map.Entry<String, Pending>> batch = ready.subList(from, Math.min(from + batchSize, ready.size()));
+            trustScoreExecutor.execute(() -> recompute(batch));
+        }
+    }
+
+    // Tắt ứng dụng: ghi nốt các gia sư còn trong hàng đợi ngay trên thread hiện tại
+    @PreDestroy
+    public void flushAll() {
+        List<Map.Entry<String, Pending>> remaining = drain(true);
+        for (int from = 0; from < remaining.size(); from += batchSize) {
+            recompute(remaining.subList(from, Math.min(from + batchSize, remaining.size())));
+        }
+    }
+
+    private List<Map.Entry<String, Pending>> drain(boolean all) {
+        long now = System.nanoTime();
+        List<Map.Entry<String, Pending>> ready = new ArrayList<>();
+        for (Map.Entry<String, Pending> entry : pending.entrySet()) {
+            Pending p = entry.getValue();
+            if (all || now - p.lastNanos() >= debounceNanos || now - p.firstNanos() >= maxDelayNanos) {
+                // remove có điều kiện: nếu vừa có thay đổi mới thì để lại cho lần flush sau
+                if (pending.remove(entry.getKey(), p)) ready.add(Map.entry(entry.getKey(), p));
+            }
+        }
+        return ready;
+    }
+
+    private void recompute(List<Map.Entry<String, Pending>> batch) {
+        long start = System.nanoTime();
+        List<String> tutorIds = batch.stream().map(Map.Entry::getKey).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                // [tutorId, totalCompletedBookings, totalCancelledBookings]
+                for (Object[] row : tutorRepository.findBookingCountersByIds(tutorIds)) {
+                    String tutorId = (String) row[0];
+                    tutorRepository.updateTrustScore(tutorId,
+                            BookingServiceImpl.trustScore(count(row[1]), count(row[2])), now);
+                    // Index matching của node này làm mới sau commit, node khác qua cache_broadcasts
+                    outboxPublisher.broadcast(new TutorChangedEvent(tutorId));
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Trust score recompute failed for {} tutors, re-queued", tutorIds.size(), e);
+            // Trả lại hàng đợi với mốc cũ để lag vẫn phản ánh thời gian chờ thật
+            batch.forEach(entry -> pending.merge(entry.getKey(), entry.getValue(),
+                    (current, old) -> new Pending(old.firstNanos(), current.lastNanos())));
+            return;
+        }
+
+        long end = System.nanoTime();
+        batchDuration.record(end - start, TimeUnit.NANOSECONDS);
+        for (Map.Entry<String, Pending> entry : batch) {
+            lag.record(end - entry.getValue().firstNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static long count(Object value) {
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+
+    private record Pending(long firstNanos, long lastNanos) {
+    }
+}
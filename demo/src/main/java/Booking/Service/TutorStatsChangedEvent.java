@@ -0,0 +1,8 @@
+package Booking.Service;
+
+/**
+ * Phát ra khi counter booking/review của gia sư thay đổi,
+ * để TrustScoreRecomputeQueue tính lại trust score sau khi transaction commit.
+ */
+public record TutorStatsChangedEvent(String tutorId) {
+}
@@ -0,0 +1,68 @@
+package Booking.Service;
+
+import Booking.Entity.BookingStatus;
+import Booking.Repository.BookingRepository;
+import User.Repository.TutorProfileRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Đối soát counter booking của gia sư (total/completed/cancelled) với bảng bookings.
+ * Counter được cộng dồn ở từng chuyển trạng thái nên có thể lệch (sửa tay DB, lỗi giữa chừng...);
+ * job này dùng một câu GROUP BY cho mọi gia sư, chỉ đếm lại và đưa vào hàng đợi tính trust score các gia sư bị lệch.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TutorStatsReconciler {
+
+    private static final int REPAIR_BATCH_SIZE = 500;
+    private static final long[] NO_BOOKINGS = new long[3];
+
+    private final BookingRepository bookingRepository;
+    private final TutorProfileRepository tutorRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Scheduled(cron = "${booking.stats.reconcile-cron:0 30 3 * * *}")
+    @Transactional
+    public void reconcile() {
+        // tutorId -> [total, completed, cancelled] thực tế
+        Map<String, long[]> actual = new HashMap<>();
+        for (Object[] row : bookingRepository.countBookingsGroupByTutor(BookingStatus.COMPLETED, BookingStatus.CANCELLED)) {
+            actual.put((String) row[0], new long[]{count(row[1]), count(row[2]), count(row[3])});
+        }
+
+        List<String> drifted = new ArrayList<>();
+        for (Object[] row : tutorRepository.findAllBookingCounters()) {
+            long[] expected = actual.getOrDefault((String) row[0], NO_BOOKINGS);
+            if (count(row[1]) != expected[0] || count(row[2]) != expected[1] || count(row[3]) != expected[2]) {
+                drifted.add((String) row[0]);
+            }
+        }
+        if (drifted.isEmpty()) return;
+
+        // Đếm lại bằng subquery trong chính câu UPDATE để không ghi đè booking vừa chuyển trạng thái sau GROUP BY
+        for (int from = 0; from < drifted.size(); from += REPAIR_BATCH_SIZE) {
+            List<String> batch = drifted.subList(from, Math.min(from + REPAIR_BATCH_SIZE, drifted.size()));
+            tutorRepository.recountBookingCounters(batch, BookingStatus.COMPLETED, BookingStatus.CANCELLED);
+        }
+        // Trust score được TrustScoreRecomputeQueue tính lại theo batch sau khi commit
+        for (String tutorId : drifted) {
+            eventPublisher.publishEvent(new TutorStatsChangedEvent(tutorId));
+        }
+        log.warn("Repaired booking counters of {} tutors", drifted.size());
+    }
+
+    private static long count(Object value) {
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+}
@@ -0,0 +1,7 @@
+package Booking.Service;
+
+/**
+ * Một booking trong hàng chờ vừa được nhận chỗ (WAITLISTED -> PENDING); ghi qua outbox cùng transaction trả chỗ.
+ */
+public record WaitlistPromotedEvent(String bookingId, String classId, String studentUserId) {
+}
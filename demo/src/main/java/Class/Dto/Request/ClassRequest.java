@@ -33,4 +33,8 @@ public class ClassRequest {
 
     private String city;
     private String district;
+
+    // Sức chứa lớp nhóm; bỏ trống = không giới hạn
+    @Min(value = 1, message = "Max students must be at least 1")
+    private Integer maxStudents;
 }
\ No newline at end of file
@@ -19,4 +19,5 @@ public class UpdateClassRequest {
     private LocationType locationType;
     private String city;
     private String district;
+    private Integer maxStudents;
 }
@@ -25,6 +25,8 @@ public class ClassResponse {
     private LocationType locationType;
     private String city;
     private String district;
+    private Integer maxStudents;
+    private Integer seatsTaken;
     private ClassStatus status;
     private ClassLifecycleStatus lifecycleStatus;
     private Integer totalSessions;
@@ -26,6 +26,10 @@ public class Class {
     private String targetGrade;
     private Double pricePerHour;
 
+    // --- Dữ liệu đã chuẩn hóa cho matching (tính khi lưu lớp) ---
+    private Long gradeMask;          // xem Support.Index.GradeMask
+    private Integer subjectDenseId;  // = Subject.denseId
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "tutor_id", insertable = false, updatable = false)
     TutorProfile tutor;
@@ -41,6 +45,13 @@ public class Class {
     @Enumerated(EnumType.STRING) private ClassStatus status = ClassStatus.DRAFT;
     @Enumerated(EnumType.STRING) private ClassLifecycleStatus lifecycleStatus = ClassLifecycleStatus.PENDING;
 
+    // Sức chứa lớp nhóm; null = không giới hạn
+    private Integer maxStudents;
+
+    // Chỉ đổi bằng UPDATE có điều kiện trong ClassRepository (không ghi đè khi save entity)
+    @Column(columnDefinition = "INT DEFAULT 0", updatable = false)
+    private Integer seatsTaken = 0;
+
     private Integer totalSessions = 0;
     private Integer sessionsCompleted = 0;
     private Boolean isDeleted = false;
@@ -48,6 +59,11 @@ public class Class {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // Optimistic lock cho các counter/lifecycle bị nhiều session cập nhật
+    @Version
+    @Column(columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
     @OneToOne(mappedBy = "clazz", cascade = CascadeType.ALL)
     private ClassSchedule schedule;
 
@@ -1,3 +1,25 @@
 package Class.Entity;
 
-public enum ClassLifecycleStatus { PENDING, ACTIVE, COMPLETED, CANCELLED }
\ No newline at end of file
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+public enum ClassLifecycleStatus {
+    PENDING, ACTIVE, COMPLETED, CANCELLED;
+
+    // Bảng chuyển trạng thái hợp lệ; COMPLETED và CANCELLED là trạng thái cuối
+    private static final Map<ClassLifecycleStatus, Set<ClassLifecycleStatus>> TRANSITIONS =
+            new EnumMap<>(ClassLifecycleStatus.class);
+
+    static {
+        TRANSITIONS.put(PENDING, EnumSet.of(ACTIVE, COMPLETED, CANCELLED));
+        TRANSITIONS.put(ACTIVE, EnumSet.of(COMPLETED, CANCELLED));
+        TRANSITIONS.put(COMPLETED, EnumSet.noneOf(ClassLifecycleStatus.class));
+        TRANSITIONS.put(CANCELLED, EnumSet.noneOf(ClassLifecycleStatus.class));
+    }
+
+    public boolean canTransitionTo(ClassLifecycleStatus next) {
+        return TRANSITIONS.get(this).contains(next);
+    }
+}
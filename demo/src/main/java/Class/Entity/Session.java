@@ -34,5 +34,10 @@ public class Session {
     private LocalDateTime startedAt;
     private LocalDateTime completedAt;
     private LocalDateTime disputeFlaggedAt;
+
+    // Optimistic lock: hai bên xác nhận cùng lúc không làm mất mốc thời gian của nhau
+    @Version
+    @Column(columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
 }
 
@@ -1,9 +1,29 @@
 package Class.Entity;
 
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum SessionStatus {
     SCHEDULED,
     IN_PROGRESS,
     COMPLETED,
     CANCELLED,
-    MISSED
-}
\ No newline at end of file
+    MISSED;
+
+    // Bảng chuyển trạng thái hợp lệ; COMPLETED, CANCELLED, MISSED là trạng thái cuối
+    private static final Map<SessionStatus, Set<SessionStatus>> TRANSITIONS = new EnumMap<>(SessionStatus.class);
+
+    static {
+        TRANSITIONS.put(SCHEDULED, EnumSet.of(IN_PROGRESS, COMPLETED, CANCELLED, MISSED));
+        TRANSITIONS.put(IN_PROGRESS, EnumSet.of(COMPLETED, CANCELLED));
+        TRANSITIONS.put(COMPLETED, EnumSet.noneOf(SessionStatus.class));
+        TRANSITIONS.put(CANCELLED, EnumSet.noneOf(SessionStatus.class));
+        TRANSITIONS.put(MISSED, EnumSet.noneOf(SessionStatus.class));
+    }
+
+    public boolean canTransitionTo(SessionStatus next) {
+        return TRANSITIONS.get(this).contains(next);
+    }
+}
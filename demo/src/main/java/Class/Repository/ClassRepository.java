@@ -4,10 +4,12 @@ import Class.Entity.ClassStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -54,4 +56,31 @@ public interface ClassRepository extends JpaRepository<Class.Entity.Class, Strin
     Optional<Class.Entity.Class> findActiveById(@Param("id") String id);
 
     List<Class.Entity.Class> findAllByTutorIdAndIsDeletedFalseOrderByCreatedAtDesc(String tutorId);
+
+    // Tiêu đề/mô tả lớp cho TutorEmbeddingPipeline (tutorId, title, description)
+    @Query("SELECT c.tutorId, c.title, c.description FROM Class c " +
+            "WHERE c.tutorId IN :tutorIds AND (c.isDeleted IS NULL OR c.isDeleted = false)")
+    List<Object[]> findEmbeddingTextsByTutorIds(@Param("tutorIds") Collection<String> tutorIds);
+
+    // ================= SEATS =================
+
+    // (maxStudents, seatsTaken) cho bộ đếm chỗ trong SeatAllocator
+    @Query("SELECT c.maxStudents, c.seatsTaken FROM Class c WHERE c.id = :id")
+    List<Object[]> findSeatState(@Param("id") String id);
+
+    // Giữ chỗ nguyên tử: chỉ tăng khi còn chỗ, trả về 0 nếu lớp đã kín
+    @Modifying
+    @Query("UPDATE Class c SET c.seatsTaken = COALESCE(c.seatsTaken, 0) + 1 " +
+            "WHERE c.id = :id AND (c.maxStudents IS NULL OR COALESCE(c.seatsTaken, 0) < c.maxStudents)")
+    int tryTakeSeat(@Param("id") String id);
+
+    @Modifying
+    @Query("UPDATE Class c SET c.seatsTaken = c.seatsTaken - 1 WHERE c.id = :id AND c.seatsTaken > 0")
+    int releaseSeat(@Param("id") String id);
+
+    // Đếm lại chỗ đã giữ từ bookings (lớp có từ trước khi có cột seatsTaken)
+    @Modifying
+    @Query("UPDATE Class c SET c.seatsTaken = (SELECT COUNT(b) FROM Booking b " +
+            "WHERE b.classId = c.id AND b.status IN :statuses) WHERE c.id = :id")
+    int recountSeats(@Param("id") String id, @Param("statuses") Collection<Booking.Entity.BookingStatus> statuses);
 }
@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -47,6 +48,13 @@ public interface SessionRepository extends JpaRepository<Session, String> {
 
     List<Session> findByClassIdOrderByScheduledStartAtAsc(String classId);
 
+    // [scheduledStartAt, scheduledEndAt, classId] các buổi chưa kết thúc của gia sư (TutorScheduleIndex)
+    @Query("SELECT s.scheduledStartAt, s.scheduledEndAt, s.classId FROM Session s JOIN s.clazz c " +
+            "WHERE c.tutorId = :tutorId AND s.status IN :statuses AND s.scheduledEndAt > :now")
+    List<Object[]> findBusyRangesByTutor(@Param("tutorId") String tutorId,
+                                         @Param("statuses") Collection<SessionStatus> statuses,
+                                         @Param("now") LocalDateTime now);
+
     long countByClassId(String classId);
 
     // Xóa các session chưa diễn ra (SCHEDULED)
@@ -0,0 +1,10 @@
+package Class.Service;
+
+import java.util.List;
+
+/**
+ * Phát ra khi gia sư hủy lớp, sau khi các booking đang hoạt động đã bị hủy hàng loạt.
+ * Thông báo cho học viên được gửi sau commit, ngoài transaction hủy lớp.
+ */
+public record ClassCancelledEvent(String classId, String classTitle, String reason, List<String> studentUserIds) {
+}
@@ -5,6 +5,9 @@ import Booking.Entity.Booking;
 import Booking.Entity.BookingStatus;
 import Booking.Entity.CancelledBy;
 import Booking.Repository.BookingRepository;
+import Booking.Repository.ClassStudentRef;
+import Booking.Service.SeatAllocator;
+import Booking.Service.TutorStatsChangedEvent;
 import Class.Dto.Request.*;
 import Class.Dto.Response.*; // Import hết response
 import Class.Entity.*;
@@ -12,6 +15,15 @@ import Class.Repository.ClassRepository;
 import Class.Repository.ClassScheduleRepository;
 import Class.Repository.SessionRepository;
 import Notification.Repository.NotificationRepository; // Giả sử có repo này
+import Subject.Service.SubjectService;
+import Support.Index.GradeMask;
+import Support.Index.TimeRange;
+import Support.Index.TutorChangedEvent;
+import Support.Index.TutorScheduleChangedEvent;
+import Support.Index.TutorScheduleIndex;
+import Support.Outbox.OutboxPublisher;
+import Support.Preference.StudentPreferenceChangedEvent;
+import Support.Repository.ScheduleRepository;
 import User.Entity.TutorProfile;
 import User.Repository.TutorProfileRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -47,7 +59,16 @@ public class ClassServiceImpl implements ClassService {
     private final SessionRepository sessionRepository;
     private final BookingRepository bookingRepository;
     private final TutorProfileRepository tutorProfileRepository;
+    private final SubjectService subjectService;
     private final ObjectMapper objectMapper; // Để xử lý JSON
+    private final OutboxPublisher outboxPublisher; // Ghi event cùng transaction, relay giao cho index/cache sau commit
+    private final TutorScheduleIndex tutorScheduleIndex;
+    private final ScheduleRepository bookingScheduleRepository; // Schedule của booking (khác ClassSchedule)
+    private final SeatAllocator seatAllocator;
+
+    // Booking còn hiệu lực (kể cả hàng chờ), bị hủy theo khi hủy lớp
+    private static final List<BookingStatus> ACTIVE_BOOKING_STATUSES =
+            List.of(BookingStatus.PENDING, BookingStatus.CONFIRMED, BookingStatus.TRIAL, BookingStatus.WAITLISTED);
 
     // --- 1. GET CLASSES ---
     @Override
@@ -88,15 +109,21 @@ public class ClassServiceImpl implements ClassService {
                 .title(request.getTitle())
                 .description(request.getDescription())
                 .targetGrade(request.getTargetGrade())
+                .gradeMask(GradeMask.parse(request.getTargetGrade()))
+                .subjectDenseId(subjectService.resolveDenseId(request.getSubjectId()))
                 .pricePerHour(request.getPricePerHour())
                 .locationType(request.getLocationType())
                 .city(request.getCity())
                 .district(request.getDistrict())
+                .maxStudents(request.getMaxStudents())
+                .seatsTaken(0)
                 .status(ClassStatus.DRAFT)
                 .lifecycleStatus(ClassLifecycleStatus.PENDING)
                 .build();
 
-        return mapToClassResponse(classRepository.save(newClass));
+        Class.Entity.Class saved = classRepository.save(newClass);
+        outboxPublisher.broadcast(new TutorChangedEvent(saved.getTutorId()));
+        return mapToClassResponse(saved);
     }
 
     // --- 4. UPDATE CLASS ---
@@ -108,12 +135,32 @@ public class ClassServiceImpl implements ClassService {
         if (request.getTitle() != null) classEntity.setTitle(request.getTitle());
         if (request.getDescription() != null) classEntity.setDescription(request.getDescription());
         if (request.getPricePerHour() != null) classEntity.setPricePerHour(request.getPricePerHour());
-        if (request.getTargetGrade() != null) classEntity.setTargetGrade(request.getTargetGrade());
+        if (request.getTargetGrade() != null) {
+            classEntity.setTargetGrade(request.getTargetGrade());
+            classEntity.setGradeMask(GradeMask.parse(request.getTargetGrade()));
+        }
         if (request.getLocationType() != null) classEntity.setLocationType(request.getLocationType());
         if (request.getCity() != null) classEntity.setCity(request.getCity());
         if (request.getDistrict() != null) classEntity.setDistrict(request.getDistrict());
+        boolean capacityChanged = request.getMaxStudents() != null
+                && !request.getMaxStudents().equals(classEntity.getMaxStudents());
+        if (capacityChanged) {
+            long taken = bookingRepository.countByClassIdAndStatusIn(id, SeatAllocator.SEAT_HOLDING_STATUSES);
+            if (request.getMaxStudents() < taken) {
+                throw new RuntimeException("Max students cannot be lower than seats taken (" + taken + ")");
+            }
+            // Đồng bộ lại seatsTaken từ bookings (lớp tạo trước khi có giới hạn chỗ)
+            classRepository.recountSeats(id, SeatAllocator.SEAT_HOLDING_STATUSES);
+            classEntity.setMaxStudents(request.getMaxStudents());
+        }
 
-        return mapToClassResponse(classRepository.save(classEntity));
+        Class.Entity.Class saved = classRepository.saveAndFlush(classEntity);
+        if (capacityChanged) {
+            // Sức chứa tăng thì người trong hàng chờ được nhận chỗ ngay
+            seatAllocator.fillFromWaitlist(id);
+        }
+        outboxPublisher.broadcast(new TutorChangedEvent(saved.getTutorId()));
+        return mapToClassResponse(saved);
     }
 
     // --- 5. UPDATE STATUS ---
@@ -122,7 +169,9 @@ public class ClassServiceImpl implements ClassService {
     public ClassResponse updateClassStatus(String id, String userId, ClassStatus status) {
         Class.Entity.Class classEntity = getClassAndCheckOwner(id, userId);
         classEntity.setStatus(status);
-        return mapToClassResponse(classRepository.save(classEntity));
+        Class.Entity.Class saved = classRepository.save(classEntity);
+        outboxPublisher.broadcast(new TutorChangedEvent(saved.getTutorId()));
+        return mapToClassResponse(saved);
     }
 
     // --- 6. CANCEL CLASS ---
@@ -134,19 +183,36 @@ public class ClassServiceImpl implements ClassService {
         if (classEntity.getLifecycleStatus() == ClassLifecycleStatus.CANCELLED) {
             throw new RuntimeException("Class is already cancelled");
         }
+        if (classEntity.getLifecycleStatus() != null
+                && !classEntity.getLifecycleStatus().canTransitionTo(ClassLifecycleStatus.CANCELLED)) {
+            throw new RuntimeException("Invalid class lifecycle transition: "
+                    + classEntity.getLifecycleStatus() + " -> " + ClassLifecycleStatus.CANCELLED);
+        }
 
         classEntity.setLifecycleStatus(ClassLifecycleStatus.CANCELLED);
         classEntity.setStatus(ClassStatus.ARCHIVED);
         classRepository.save(classEntity);
+        outboxPublisher.broadcast(new TutorChangedEvent(classEntity.getTutorId()));
 
-        List<Booking> bookings = bookingRepository.findActiveBookingsByClassId(id);
-        for (Booking booking : bookings) {
-            booking.setStatus(BookingStatus.CANCELLED);
-            booking.setCancelReason(reason);
-            booking.setCancelledBy(CancelledBy.TUTOR);
-            bookingRepository.save(booking);
-            // TODO: Call notification service
+        // Hủy booking, session và lịch học theo tập (số câu lệnh không phụ thuộc sĩ số lớp)
+        List<ClassStudentRef> students = bookingRepository.findStudentRefsByClassId(id, ACTIVE_BOOKING_STATUSES);
+        LocalDateTime now = LocalDateTime.now();
+        int cancelled = bookingRepository.cancelBookingsByClassId(
+                id, ACTIVE_BOOKING_STATUSES, BookingStatus.CANCELLED, reason, CancelledBy.TUTOR, now);
+        sessionRepository.deleteFutureSessions(id);
+        bookingScheduleRepository.deleteFutureByClassId(id, now);
+        outboxPublisher.broadcast(new TutorScheduleChangedEvent(classEntity.getTutorId()));
+        seatAllocator.invalidate(id);
+
+        if (cancelled > 0) {
+            tutorProfileRepository.addBookingCounters(classEntity.getTutorId(), 0, 0, cancelled);
+            outboxPublisher.publish(new TutorStatsChangedEvent(classEntity.getTutorId()));
         }
+        students.forEach(s -> outboxPublisher.broadcast(new StudentPreferenceChangedEvent(s.getStudentId())));
+
+        // Thông báo cho học viên được gửi theo lô sau khi commit
+        outboxPublisher.publish(new ClassCancelledEvent(id, classEntity.getTitle(), reason,
+                students.stream().map(ClassStudentRef::getUserId).distinct().toList()));
     }
 
     // --- 7. DELETE CLASS ---
@@ -162,6 +228,7 @@ public class ClassServiceImpl implements ClassService {
         classEntity.setIsDeleted(true);
         classEntity.setStatus(ClassStatus.ARCHIVED);
         classRepository.save(classEntity);
+        outboxPublisher.broadcast(new TutorChangedEvent(classEntity.getTutorId()));
     }
 
     // --- 8. GET STUDENTS ---
@@ -205,9 +272,10 @@ public class ClassServiceImpl implements ClassService {
     @Override
     @Transactional
     public void clearSchedule(String id, String userId) {
-        getClassAndCheckOwner(id, userId);
+        Class.Entity.Class owned = getClassAndCheckOwner(id, userId);
         sessionRepository.deleteFutureSessions(id);
         scheduleRepository.deleteByClassId(id);
+        outboxPublisher.broadcast(new TutorScheduleChangedEvent(owned.getTutorId()));
 
         Class.Entity.Class clazz = findClassOrThrow(id);
         clazz.setTotalSessions((int) sessionRepository.countByClassIdAndStatus(id, SessionStatus.COMPLETED));
@@ -218,6 +286,8 @@ public class ClassServiceImpl implements ClassService {
     @Override
     @Transactional
     public ClassScheduleResponse updateSchedule(String id, String userId, ScheduleRequest request) {
+        // Khóa gia sư trước mọi lần đọc khác để các lần ghi lịch của cùng gia sư chạy lần lượt (xem conflictsForUpdate)
+        tutorProfileRepository.findByUserIdForUpdate(userId);
         Class.Entity.Class classEntity = getClassAndCheckOwner(id, userId);
 
         // 1. Xóa session tương lai
@@ -276,10 +346,20 @@ public class ClassServiceImpl implements ClassService {
         }
         scheduleRepository.save(schedule);
 
-        // 4. Lưu Sessions & Update Class
+        // 4. Không cho trùng lịch với lớp khác / booking của lớp khác của gia sư (một lần cho cả recurrence)
+        List<TimeRange> proposed = newSessions.stream()
+                .map(s -> new TimeRange(s.getScheduledStartAt(), s.getScheduledEndAt()))
+                .toList();
+        List<TimeRange> conflicts = tutorScheduleIndex.conflictsForUpdate(classEntity.getTutorId(), proposed, id);
+        if (!conflicts.isEmpty()) {
+            throw new RuntimeException("Schedule conflict at " + conflicts.get(0).start());
+        }
+
+        // 5. Lưu Sessions & Update Class
         sessionRepository.saveAll(newSessions);
         classEntity.setTotalSessions((int) sessionRepository.countByClassId(id));
         classRepository.save(classEntity);
+        outboxPublisher.broadcast(new TutorScheduleChangedEvent(classEntity.getTutorId()));
 
         return mapToScheduleResponse(schedule);
     }
@@ -316,6 +396,8 @@ public class ClassServiceImpl implements ClassService {
                 .pricePerHour(e.getPricePerHour())
                 .city(e.getCity())
                 .district(e.getDistrict())
+                .maxStudents(e.getMaxStudents())
+                .seatsTaken(e.getSeatsTaken())
                 .createdAt(e.getCreatedAt())
                 .build();
     }
@@ -0,0 +1,10 @@
+package Class.Service;
+
+import java.util.List;
+
+/**
+ * Thông báo cần gửi khi session đổi trạng thái; ghi vào outbox cùng transaction với session.
+ * dedupKey cố định theo (loại, session) để giao lại không tạo thông báo trùng.
+ */
+public record SessionNotificationEvent(List<String> userIds, String title, String body, String type, String dedupKey) {
+}
@@ -6,7 +6,8 @@ import Class.Entity.ClassLifecycleStatus;
 import Class.Entity.Session;
 import Class.Entity.SessionStatus;
 import Class.Repository.SessionRepository;
-import Notification.Service.NotificationService;
+import Config.ConflictRetryExecutor;
+import Support.Outbox.OutboxPublisher;
 import User.Entity.Role;
 import User.Entity.StudentProfile;
 import User.Entity.TutorProfile;
@@ -17,10 +18,10 @@ import User.Repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -32,7 +33,8 @@ public class SessionServiceImpl implements SessionService {
     private final TutorProfileRepository tutorRepository;
     private final StudentProfileRepository studentRepository;
     private final UserRepository userRepository; // Dùng để tìm Admin
-    private final NotificationService notificationService;
+    private final OutboxPublisher outboxPublisher;
+    private final ConflictRetryExecutor conflictRetry;
 
 
     private static final int START_WINDOW_MINUTES_BEFORE = 15;
@@ -40,9 +42,18 @@ public class SessionServiceImpl implements SessionService {
     private static final int DISPUTE_HOURS = 6;
 
     // --- 1. START SESSION ---
+    // Tutor và học viên xác nhận gần như cùng lúc: xung đột @Version thì đọc lại session và xác nhận lại
     @Override
-    @Transactional
     public SessionResponse startSession(String sessionId, String userId) {
+        return conflictRetry.execute("session.start", () -> doStartSession(sessionId, userId));
+    }
+
+    @Override
+    public SessionResponse completeSession(String sessionId, String userId) {
+        return conflictRetry.execute("session.complete", () -> doCompleteSession(sessionId, userId));
+    }
+
+    private SessionResponse doStartSession(String sessionId, String userId) {
         Session session = sessionRepository.findByIdWithDetails(sessionId)
                 .orElseThrow(() -> new RuntimeException("Session not found"));
 
@@ -67,8 +78,8 @@ public class SessionServiceImpl implements SessionService {
         boolean tutorConfirmed = session.getTutorStartConfirmedAt() != null;
         boolean studentConfirmed = session.getStudentStartConfirmedAt() != null;
 
-        if (tutorConfirmed && studentConfirmed) {
-            session.setStatus(SessionStatus.IN_PROGRESS);
+        if (tutorConfirmed && studentConfirmed && session.getStatus() != SessionStatus.IN_PROGRESS) {
+            transition(session, SessionStatus.IN_PROGRESS);
             if (session.getStartedAt() == null) session.setStartedAt(now);
         }
 
@@ -83,9 +94,7 @@ public class SessionServiceImpl implements SessionService {
         return mapToResponse(updated);
     }
 
-    @Override
-    @Transactional
-    public SessionResponse completeSession(String sessionId, String userId) {
+    private SessionResponse doCompleteSession(String sessionId, String userId) {
         Session session = sessionRepository.findByIdWithDetails(sessionId)
                 .orElseThrow(() -> new RuntimeException("Session not found"));
 
@@ -113,7 +122,7 @@ public class SessionServiceImpl implements SessionService {
 
         // 3. State Transition
         if (shouldComplete && session.getStatus() != SessionStatus.COMPLETED) {
-            session.setStatus(SessionStatus.COMPLETED);
+            transition(session, SessionStatus.COMPLETED);
             if (session.getCompletedAt() == null) session.setCompletedAt(now);
 
             // Update Class Stats
@@ -121,7 +130,9 @@ public class SessionServiceImpl implements SessionService {
             clazz.setSessionsCompleted(clazz.getSessionsCompleted() + 1);
 
             // Update Lifecycle if all done
-            if (clazz.getTotalSessions() > 0 && clazz.getSessionsCompleted() >= clazz.getTotalSessions()) {
+            if (clazz.getTotalSessions() > 0 && clazz.getSessionsCompleted() >= clazz.getTotalSessions()
+                    && (clazz.getLifecycleStatus() == null
+                    || clazz.getLifecycleStatus().canTransitionTo(ClassLifecycleStatus.COMPLETED))) {
                 clazz.setLifecycleStatus(ClassLifecycleStatus.COMPLETED);
             }
         }
@@ -137,6 +148,15 @@ public class SessionServiceImpl implements SessionService {
 
     // ================= HELPER LOGIC =================
 
+    // Chỉ cho phép các chuyển trạng thái có trong bảng SessionStatus
+    private void transition(Session session, SessionStatus next) {
+        SessionStatus current = session.getStatus();
+        if (current != null && !current.canTransitionTo(next)) {
+            throw new RuntimeException("Invalid session status transition: " + current + " -> " + next);
+        }
+        session.setStatus(next);
+    }
+
 
     private Role ensureActorAllowed(Session session, String userId) {
         Class.Entity.Class clazz = session.getClazz();
@@ -209,22 +229,16 @@ public class SessionServiceImpl implements SessionService {
 
         // 1. Notify other party to confirm
         if (tutorConf && !studentConf && role == Role.TEACHER) {
-            for (String uid : studentUserIds) {
-                notificationService.createNotification(uid, "Xác nhận bắt đầu", "Gia sư đã xác nhận bắt đầu, vui lòng xác nhận.", "SESSION_WAIT_START", null);
-            }
+            notify(session, studentUserIds, "Xác nhận bắt đầu", "Gia sư đã xác nhận bắt đầu, vui lòng xác nhận.", "SESSION_WAIT_START");
         }
         if (studentConf && !tutorConf && role == Role.STUDENT) {
-            notificationService.createNotification(tutorUserId, "Xác nhận bắt đầu", "Học viên đã xác nhận bắt đầu, vui lòng xác nhận.", "SESSION_WAIT_START", null);
+            notify(session, List.of(tutorUserId), "Xác nhận bắt đầu", "Học viên đã xác nhận bắt đầu, vui lòng xác nhận.", "SESSION_WAIT_START");
         }
 
         // 2. Notify Started
         if (session.getStatus() == SessionStatus.IN_PROGRESS) {
-            // Notify Tutor
-            notificationService.createNotification(tutorUserId, "Buổi học đã bắt đầu", "Buổi học đang diễn ra.", "SESSION_STARTED", null);
-            // Notify Students
-            for (String uid : studentUserIds) {
-                notificationService.createNotification(uid, "Buổi học đã bắt đầu", "Buổi học đang diễn ra.", "SESSION_STARTED", null);
-            }
+            // Notify Tutor + Students
+            notify(session, withTutor(tutorUserId, studentUserIds), "Buổi học đã bắt đầu", "Buổi học đang diễn ra.", "SESSION_STARTED");
         }
     }
 
@@ -234,20 +248,15 @@ public class SessionServiceImpl implements SessionService {
 
         // 1. Notify other party
         if (tutorConf && !studentConf && role == Role.TEACHER) {
-            for (String uid : studentUserIds) {
-                notificationService.createNotification(uid, "Xác nhận hoàn thành", "Gia sư đã xác nhận hoàn thành.", "SESSION_WAIT_COMPLETE", null);
-            }
+            notify(session, studentUserIds, "Xác nhận hoàn thành", "Gia sư đã xác nhận hoàn thành.", "SESSION_WAIT_COMPLETE");
         }
         if (studentConf && !tutorConf && role == Role.STUDENT) {
-            notificationService.createNotification(tutorUserId, "Xác nhận hoàn thành", "Học viên đã xác nhận hoàn thành.", "SESSION_WAIT_COMPLETE", null);
+            notify(session, List.of(tutorUserId), "Xác nhận hoàn thành", "Học viên đã xác nhận hoàn thành.", "SESSION_WAIT_COMPLETE");
         }
 
         // 2. Notify Completed
         if (session.getStatus() == SessionStatus.COMPLETED) {
-            notificationService.createNotification(tutorUserId, "Buổi học hoàn tất", "Buổi học đã kết thúc.", "SESSION_COMPLETED", null);
-            for (String uid : studentUserIds) {
-                notificationService.createNotification(uid, "Buổi học hoàn tất", "Buổi học đã kết thúc.", "SESSION_COMPLETED", null);
-            }
+            notify(session, withTutor(tutorUserId, studentUserIds), "Buổi học hoàn tất", "Buổi học đã kết thúc.", "SESSION_COMPLETED");
         }
     }
 
@@ -259,9 +268,22 @@ public class SessionServiceImpl implements SessionService {
         // Add Admins
         // List<String> adminIds = userRepository.findAllAdmins()...
 
-        for (String uid : recipients) {
-            notificationService.createNotification(uid, "Phiên học cần xem xét", "Buổi học bị đánh dấu tranh chấp.", "SESSION_DISPUTE", null);
-        }
+        notify(session, recipients, "Phiên học cần xem xét", "Buổi học bị đánh dấu tranh chấp.", "SESSION_DISPUTE");
+    }
+
+    /**
+     * Ghi thông báo vào outbox cùng transaction với session; dedupKey theo (loại, session) để giao lại không gửi trùng.
+     */
+    private void notify(Session session, List<String> userIds, String title, String body, String type) {
+        if (userIds.isEmpty()) return;
+        outboxPublisher.publish(new SessionNotificationEvent(
+                List.copyOf(userIds), title, body, type, type + ":" + session.getId()));
+    }
+
+    private static List<String> withTutor(String tutorUserId, List<String> studentUserIds) {
+        List<String> recipients = new ArrayList<>(studentUserIds);
+        recipients.add(tutorUserId);
+        return recipients;
     }
 
     private List<String> getStudentUserIds(Session session) {
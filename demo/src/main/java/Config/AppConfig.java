@@ -2,9 +2,11 @@ package Config;
 
 import Config.Jwt.JwtFilter;
 import org.hibernate.StatelessSession;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -19,8 +21,11 @@ import org.springframework.web.cors.CorsConfiguration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @EnableAsync
+@EnableScheduling
 @Configuration
 public class AppConfig {
     public static final int NUMBEROFPAGE = 18;
@@ -76,4 +81,53 @@ public class AppConfig {
         executor.initialize();
         return executor;
     }
+
+    // Pool riêng cho chấm điểm matching song song, không dùng chung commonPool
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool matchingForkJoinPool(
+            @Value("${matching.parallel.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(threads);
+    }
+
+    // Executor có giới hạn cho TutorEmbeddingPipeline: queue đầy thì thread gọi tự chạy (back-pressure)
+    @Bean
+    public ThreadPoolTaskExecutor embeddingExecutor(
+            @Value("${embedding.pipeline.threads:0}") int threads) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(poolSize * 2);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("Embedding-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Một thread cho TrustScoreRecomputeQueue: các batch ghi trust score chạy tuần tự, không tranh lock với nhau
+    @Bean
+    public ThreadPoolTaskExecutor trustScoreExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(64);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("TrustScore-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Một thread cho compact của TutorVectorIndex; đã có một lần compact chờ sẵn thì bỏ yêu cầu mới (lần đó gộp luôn deltas)
+    @Bean
+    public ThreadPoolTaskExecutor vectorIndexExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setThreadNamePrefix("VectorIndex-");
+        executor.initialize();
+        return executor;
+    }
 }
@@ -0,0 +1,80 @@
+package Config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Chạy một thao tác trong transaction riêng và thử lại khi gặp xung đột @Version (optimistic lock),
+ * thay cho khóa bi quan trên các dòng "nóng" (booking, session, class).
+ * Mỗi lần thử đọc lại dữ liệu mới nhất; giữa các lần thử có backoff ngẫu nhiên, tối đa max-attempts lần.
+ * Nếu đã ở trong transaction của người gọi thì chạy một lần (không thể thử lại giữa chừng transaction ngoài).
+ * Metric: concurrency.conflict.retries{operation}.
+ */
+@Component
+@Slf4j
+public class ConflictRetryExecutor {
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry registry;
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    public ConflictRetryExecutor(TransactionTemplate transactionTemplate,
+                                 MeterRegistry registry,
+                                 @Value("${concurrency.retry.max-attempts:4}") int maxAttempts,
+                                 @Value("${concurrency.retry.backoff-ms:20}") long backoffMs) {
+        this.transactionTemplate = transactionTemplate;
+        this.registry = registry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = Math.max(0, backoffMs);
+    }
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    log.warn("{} still conflicting after {} attempts", operation, attempt);
+                    throw new RuntimeException("Concurrent update, please retry");
+                }
+                Counter.builder("concurrency.conflict.retries")
+                        .tag("operation", operation)
+                        .register(registry)
+                        .increment();
+                sleep(operation, attempt);
+            }
+        }
+    }
+
+    public void run(String operation, Runnable action) {
+        execute(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // Backoff mũ có jitter để các request đụng nhau không thử lại cùng lúc
+    private void sleep(String operation, int attempt) {
+        long max = backoffMs << Math.min(attempt - 1, 6);
+        if (max <= 0) return;
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(max / 2, max + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying " + operation);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package Notification.Service;
+
+import Class.Service.ClassCancelledEvent;
+import Support.Outbox.OutboxSubscriber;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gửi thông báo hủy lớp cho học viên: nhận từ outbox sau commit, ghi theo lô nên lớp đông không kéo dài transaction hủy lớp.
+ */
+@Component
+@RequiredArgsConstructor
+public class ClassCancelledNotifier implements OutboxSubscriber<ClassCancelledEvent> {
+
+    private final NotificationService notificationService;
+
+    @Override
+    public Class<ClassCancelledEvent> eventType() {
+        return ClassCancelledEvent.class;
+    }
+
+    @Override
+    public void onEvents(List<ClassCancelledEvent> events) {
+        for (ClassCancelledEvent event : events) {
+            if (event.studentUserIds().isEmpty()) continue;
+            String body = "Lớp \"" + event.classTitle() + "\" đã bị gia sư hủy"
+                    + (event.reason() != null && !event.reason().isBlank() ? ": " + event.reason() : ".");
+            notificationService.createNotifications(event.studentUserIds(), "Lớp học đã bị hủy", body,
+                    "CLASS_CANCELLED", Map.of("classId", event.classId()), "class-cancelled:" + event.classId());
+        }
+    }
+}
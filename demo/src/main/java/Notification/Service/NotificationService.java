@@ -3,6 +3,7 @@ package Notification.Service;
 import Notification.Dto.Response.NotificationListResponse;
 import Notification.Dto.Response.NotificationResponse;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -12,6 +13,9 @@ public interface NotificationService {
     void markAllAsRead(String userId);
     void createNotification(String userId, String title, String body, String type, Map<String, Object> metadata);
     void createNotification(String userId, String body);
+    // Cùng một thông báo cho nhiều user, ghi bằng JDBC batch
+    void createNotifications(Collection<String> userIds, String title, String body, String type,
+                             Map<String, Object> metadata, String dedupKey);
     // Admin
     List<NotificationResponse> getNotificationsForAdmin(String type);
 }
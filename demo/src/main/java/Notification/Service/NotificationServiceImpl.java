@@ -5,25 +5,47 @@ import Notification.Dto.Response.NotificationResponse;
 import Notification.Entity.NotificationChannel;
 import Notification.Repository.NotificationRepository;
 import com.sun.nio.sctp.Notification;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 
 public class NotificationServiceImpl implements NotificationService {
+
+    private static final String INSERT_SQL = "INSERT INTO notifications " +
+            "(id, user_id, type, title, body, metadata, channel, dedup_key, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int FANOUT_BATCH_SIZE = 500;
+
     @Autowired
     private NotificationRepository notificationRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Override
     @Transactional(readOnly = true)
     public NotificationListResponse getMyNotifications(String userId, int page, int pageSize) {
@@ -115,6 +137,54 @@ public class NotificationServiceImpl implements NotificationService {
         createNotification(userId, "Thông báo mới", body, "SYSTEM", null);
     }
 
+    @Override
+    public void createNotifications(Collection<String> userIds, String title, String body, String type,
+                                    Map<String, Object> metadata, String dedupKey) {
+        String metadataJson;
+        try {
+            metadataJson = metadata != null ? objectMapper.writeValueAsString(metadata) : null;
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("JSON Error", e);
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        // Mỗi lô tự commit (không bọc cả fanout trong một transaction dài)
+        List<String> recipients = List.copyOf(new LinkedHashSet<>(userIds));
+        for (int from = 0; from < recipients.size(); from += FANOUT_BATCH_SIZE) {
+            List<String> batch = pendingRecipients(
+                    recipients.subList(from, Math.min(from + FANOUT_BATCH_SIZE, recipients.size())), dedupKey);
+            if (batch.isEmpty()) continue;
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, userId) -> {
+                ps.setString(1, UUID.randomUUID().toString());
+                ps.setString(2, userId);
+                ps.setString(3, type != null ? type : "SYSTEM");
+                ps.setString(4, title);
+                ps.setString(5, body);
+                ps.setString(6, metadataJson);
+                ps.setString(7, NotificationChannel.IN_APP.name());
+                // dedupKey cố định theo sự kiện: unique (userId, dedupKey) chặn gửi trùng khi chạy lại
+                ps.setString(8, dedupKey != null ? dedupKey : UUID.randomUUID().toString());
+                ps.setTimestamp(9, now);
+            });
+        }
+    }
+
+    /**
+     * Bỏ những người đã nhận thông báo cùng dedupKey: outbox giao lại (at-least-once) không vi phạm unique index.
+     */
+    private List<String> pendingRecipients(List<String> batch, String dedupKey) {
+        if (dedupKey == null) return batch;
+        String placeholders = String.join(",", Collections.nCopies(batch.size(), "?"));
+        List<Object> args = new ArrayList<>(batch.size() + 1);
+        args.add(dedupKey);
+        args.addAll(batch);
+        Set<String> delivered = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT user_id FROM notifications WHERE dedup_key = ? AND user_id IN (" + placeholders + ")",
+                String.class, args.toArray()));
+        if (delivered.isEmpty()) return batch;
+        return batch.stream().filter(userId -> !delivered.contains(userId)).toList();
+    }
+
     private NotificationResponse mapToResponse(Notification.Entity.Notification entity) {
         return NotificationResponse.builder()
                 .id(entity.getId())
@@ -0,0 +1,32 @@
+package Notification.Service;
+
+import Class.Service.SessionNotificationEvent;
+import Support.Outbox.OutboxSubscriber;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Ghi thông báo session nhận từ outbox, mỗi event một lần JDBC batch cho mọi người nhận.
+ */
+@Component
+@RequiredArgsConstructor
+public class SessionNotificationNotifier implements OutboxSubscriber<SessionNotificationEvent> {
+
+    private final NotificationService notificationService;
+
+    @Override
+    public Class<SessionNotificationEvent> eventType() {
+        return SessionNotificationEvent.class;
+    }
+
+    @Override
+    public void onEvents(List<SessionNotificationEvent> events) {
+        for (SessionNotificationEvent event : events) {
+            if (event.userIds().isEmpty()) continue;
+            notificationService.createNotifications(event.userIds(), event.title(), event.body(), event.type(),
+                    null, event.dedupKey());
+        }
+    }
+}
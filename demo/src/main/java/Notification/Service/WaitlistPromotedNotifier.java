@@ -0,0 +1,35 @@
+package Notification.Service;
+
+import Booking.Service.WaitlistPromotedEvent;
+import Support.Outbox.OutboxSubscriber;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Báo cho học viên khi booking trong hàng chờ được nhận chỗ.
+ */
+@Component
+@RequiredArgsConstructor
+public class WaitlistPromotedNotifier implements OutboxSubscriber<WaitlistPromotedEvent> {
+
+    private final NotificationService notificationService;
+
+    @Override
+    public Class<WaitlistPromotedEvent> eventType() {
+        return WaitlistPromotedEvent.class;
+    }
+
+    @Override
+    public void onEvents(List<WaitlistPromotedEvent> events) {
+        for (WaitlistPromotedEvent event : events) {
+            if (event.studentUserId() == null) continue;
+            notificationService.createNotifications(List.of(event.studentUserId()), "Đã có chỗ trong lớp",
+                    "Bạn đã được chuyển từ danh sách chờ vào lớp, vui lòng chờ gia sư xác nhận.", "WAITLIST_PROMOTED",
+                    Map.of("bookingId", event.bookingId(), "classId", event.classId()),
+                    "waitlist-promoted:" + event.bookingId());
+        }
+    }
+}
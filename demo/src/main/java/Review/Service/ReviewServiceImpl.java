@@ -3,7 +3,7 @@ package Review.Service;
 import Booking.Entity.Booking;
 import Booking.Entity.BookingStatus;
 import Booking.Repository.BookingRepository;
-import Booking.Service.BookingService;
+import Booking.Service.TutorStatsChangedEvent;
 import Review.Dto.Request.ReviewRequest;
 import Review.Dto.Response.ReviewResponse;
 import Review.Entity.Review;
@@ -14,6 +14,7 @@ import User.Repository.StudentProfileRepository;
 import User.Repository.TutorProfileRepository;
 import User.Service.TutorService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
@@ -29,7 +30,7 @@ public class ReviewServiceImpl implements ReviewService {
     private BookingRepository bookingRepository;
 
     @Autowired
-    private BookingService bookingService;
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public ReviewResponse createReview(ReviewRequest request) {
@@ -62,7 +63,7 @@ public class ReviewServiceImpl implements ReviewService {
 
         Review savedReview = reviewRepository.save(review);
 
-        bookingService.recalculateTutorStats(booking.getTutorId());
+        eventPublisher.publishEvent(new TutorStatsChangedEvent(booking.getTutorId()));
 
         return mapToResponse(savedReview);
 
@@ -0,0 +1,21 @@
+package Subject.Entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Bộ đếm cấp denseId: mỗi lần cấp là một câu UPDATE next_value = next_value + 1 trên dòng này,
+ * row lock giữ tới commit nên các transaction (kể cả khác node) không nhận trùng id.
+ */
+@Entity
+@Data
+@Table(name = "dense_id_sequences")
+public class DenseIdSequence {
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    // Id sẽ được cấp tiếp theo
+    @Column(nullable = false)
+    private Integer nextValue;
+}
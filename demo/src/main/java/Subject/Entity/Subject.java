@@ -27,6 +27,10 @@ public class Subject {
     @Column(columnDefinition = "TEXT")
     private String description;
 
+    // Id số nguyên liên tục (0, 1, 2...) dùng làm vị trí bit trong index matching
+    @Column(unique = true)
+    private Integer denseId;
+
     @CreationTimestamp
     @Column(updatable = false)
     private LocalDateTime createdAt;
@@ -4,7 +4,11 @@ import Subject.Entity.Subject;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface SubjectRepository extends JpaRepository<Subject, String> {
     boolean existsByName(String name);
+
+    List<Subject> findAllByDenseIdIsNullOrderByCreatedAtAsc();
 }
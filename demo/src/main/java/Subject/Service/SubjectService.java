@@ -8,4 +8,7 @@ import java.util.List;
 public interface SubjectService {
     List<SubjectResponse> getAllSubjects();
     SubjectResponse createSubject(SubjectRequest request);
+
+    // Dense id của subject cho index matching, cấp mới nếu chưa có
+    Integer resolveDenseId(String subjectId);
 }
@@ -5,7 +5,13 @@ import Subject.Dto.Response.SubjectResponse;
 import Subject.Entity.Subject;
 import Subject.Repository.SubjectRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -16,9 +22,20 @@ import java.util.stream.Collectors;
 
 @Service
 public class SubjectServiceImpl implements SubjectService{
+
+    private static final String SEQUENCE_NAME = "subject";
+    private static final String SEED_SQL = "INSERT INTO dense_id_sequences (name, next_value) " +
+            "SELECT ?, COALESCE(MAX(dense_id), -1) + 1 FROM subjects";
+    private static final String NEXT_SQL = "UPDATE dense_id_sequences SET next_value = next_value + 1 WHERE name = ?";
+    private static final String CURRENT_SQL = "SELECT next_value FROM dense_id_sequences WHERE name = ?";
+    private static final String ASSIGN_SQL = "UPDATE subjects SET dense_id = ? WHERE id = ? AND dense_id IS NULL";
+
     @Autowired
     private SubjectRepository subjectRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
 
     @Override
     @Transactional(readOnly = true)
@@ -46,12 +63,58 @@ public class SubjectServiceImpl implements SubjectService{
                 .name(request.getName())
                 .level(request.getLevel())
                 .description(request.getDescription())
+                // Cấp denseId ngay khi tạo: tạo lớp sau đó chỉ đọc, không phải cấp trong transaction createClass
+                .denseId(nextDenseId())
                 .build();
 
         Subject savedEntity = subjectRepository.save(entity);
         return mapToResponse(savedEntity);
     }
 
+    @Override
+    @Transactional
+    public Integer resolveDenseId(String subjectId) {
+        if (subjectId == null) return null;
+        Subject subject = subjectRepository.findById(subjectId).orElse(null);
+        if (subject == null) return null;
+        if (subject.getDenseId() != null) return subject.getDenseId();
+        // Subject cũ chưa được backfill: cấp có điều kiện, transaction khác đã cấp trước thì dùng id của nó
+        return assignDenseId(subjectId);
+    }
+
+    // Cấp dense id cho các subject cũ trước khi TutorMatchIndex được build (an toàn khi nhiều node cùng khởi động)
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @Transactional
+    public void backfillDenseIds() {
+        for (Subject subject : subjectRepository.findAllByDenseIdIsNullOrderByCreatedAtAsc()) {
+            assignDenseId(subject.getId());
+        }
+    }
+
+    private Integer assignDenseId(String subjectId) {
+        jdbcTemplate.update(ASSIGN_SQL, nextDenseId(), subjectId);
+        // 0 dòng nghĩa là đã có id (id vừa cấp bị bỏ trống, chỉ tốn một bit)
+        return jdbcTemplate.queryForObject("SELECT dense_id FROM subjects WHERE id = ?", Integer.class, subjectId);
+    }
+
+    /**
+     * Lấy id tiếp theo từ dense_id_sequences trong transaction hiện tại.
+     * Row lock của UPDATE giữ tới commit nên hai transaction đồng thời không đọc được cùng một giá trị.
+     */
+    private int nextDenseId() {
+        if (jdbcTemplate.update(NEXT_SQL, SEQUENCE_NAME) == 0) {
+            try {
+                // Lần đầu: khởi tạo từ MAX(dense_id) hiện có
+                jdbcTemplate.update(SEED_SQL, SEQUENCE_NAME);
+            } catch (DuplicateKeyException e) {
+                // Transaction khác vừa khởi tạo
+            }
+            jdbcTemplate.update(NEXT_SQL, SEQUENCE_NAME);
+        }
+        return jdbcTemplate.queryForObject(CURRENT_SQL, Integer.class, SEQUENCE_NAME) - 1;
+    }
+
     // Helper mapper (Nên dùng MapStruct trong dự án thực tế)
     private SubjectResponse mapToResponse(Subject entity) {
         return SubjectResponse.builder()
@@ -1,13 +1,17 @@
 package Support.Controller;
 
 import Config.APIResponse;
+import Support.Dto.Request.BatchRecommendationRequest;
 import Support.Dto.Request.MatchingRequest;
 import Support.Dto.Request.TutorFilterRequest;
-import Support.Dto.Response.TutorMatchResponse;
+import Support.Dto.Response.MatchCacheStatsResponse;
+import Support.Dto.Response.StudentRecommendationResponse;
+import Support.Dto.Response.TutorMatchPageResponse;
 import Support.Service.MatchingService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -22,16 +26,22 @@ public class MatchingController {
     /**
      * GET /api/matching/tutors
      * Legacy Filter: Tìm kiếm gia sư theo tiêu chí cơ bản
+     * explain=true: trả thêm điểm thành phần và thời gian từng bước
+     * latitude/longitude + radiusKm: tìm theo bán kính thay cho city/district
      */
     @GetMapping("/tutors")
-    public ResponseEntity<APIResponse<List<TutorMatchResponse>>> searchTutors(
+    public ResponseEntity<APIResponse<?>> searchTutors(
             @RequestParam(required = false) String studentId,
             @RequestParam(required = false) String subjectId,
             @RequestParam(required = false) String city,
             @RequestParam(required = false) String district,
             @RequestParam(required = false) Double priceMin,
             @RequestParam(required = false) Double priceMax,
-            @RequestParam(required = false) String gradeLevel
+            @RequestParam(required = false) String gradeLevel,
+            @RequestParam(required = false) Double latitude,
+            @RequestParam(required = false) Double longitude,
+            @RequestParam(required = false) Double radiusKm,
+            @RequestParam(defaultValue = "false") boolean explain
     ) {
         TutorFilterRequest request = new TutorFilterRequest();
         request.setStudentId(studentId);
@@ -41,18 +51,84 @@ public class MatchingController {
         request.setPriceMin(priceMin);
         request.setPriceMax(priceMax);
         request.setGradeLevel(gradeLevel);
+        request.setLatitude(latitude);
+        request.setLongitude(longitude);
+        request.setRadiusKm(radiusKm);
 
+        if (explain) {
+            return ResponseEntity.ok(APIResponse.success(matchingService.explainSearchTutors(request)));
+        }
         return ResponseEntity.ok(APIResponse.success(matchingService.searchTutors(request)));
     }
 
+    /**
+     * GET /api/matching/tutors/page
+     * Legacy Filter có phân trang: trang đầu không gửi cursor, các trang sau gửi nextCursor
+     * cùng bộ lọc như trang đầu.
+     */
+    @GetMapping("/tutors/page")
+    public ResponseEntity<APIResponse<TutorMatchPageResponse>> searchTutorsPage(
+            @RequestParam(required = false) String studentId,
+            @RequestParam(required = false) String subjectId,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String district,
+            @RequestParam(required = false) Double priceMin,
+            @RequestParam(required = false) Double priceMax,
+            @RequestParam(required = false) String gradeLevel,
+            @RequestParam(required = false) Double latitude,
+            @RequestParam(required = false) Double longitude,
+            @RequestParam(required = false) Double radiusKm,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        TutorFilterRequest request = new TutorFilterRequest();
+        request.setStudentId(studentId);
+        request.setSubjectId(subjectId);
+        request.setCity(city);
+        request.setDistrict(district);
+        request.setPriceMin(priceMin);
+        request.setPriceMax(priceMax);
+        request.setGradeLevel(gradeLevel);
+        request.setLatitude(latitude);
+        request.setLongitude(longitude);
+        request.setRadiusKm(radiusKm);
+
+        return ResponseEntity.ok(APIResponse.success(matchingService.searchTutorsPage(request, cursor, size)));
+    }
+
     /**
      * POST /api/matching/tutors
      * Advanced Matching Engine
      */
     @PostMapping("/tutors")
-    public ResponseEntity<APIResponse<List<TutorMatchResponse>>> matchTutors(
+    public ResponseEntity<APIResponse<?>> matchTutors(
             @Valid @RequestBody MatchingRequest request
     ) {
+        if (request.isExplain()) {
+            return ResponseEntity.ok(APIResponse.success(matchingService.explainMatchTutors(request)));
+        }
         return ResponseEntity.ok(APIResponse.success(matchingService.matchTutors(request)));
     }
-}
+
+    /**
+     * POST /api/matching/recommendations/batch
+     * Gợi ý gia sư cho nhiều học viên một lúc (job email "gia sư dành cho bạn"), chỉ ADMIN
+     */
+    @PostMapping("/recommendations/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<APIResponse<List<StudentRecommendationResponse>>> recommendTutors(
+            @Valid @RequestBody BatchRecommendationRequest request
+    ) {
+        return ResponseEntity.ok(APIResponse.success(matchingService.recommendTutors(request)));
+    }
+
+    /**
+     * GET /api/matching/cache/stats
+     * Thống kê cache kết quả matching (hit/miss/eviction/invalidation)
+     */
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<APIResponse<MatchCacheStatsResponse>> getCacheStats() {
+        return ResponseEntity.ok(APIResponse.success(matchingService.getResultCacheStats()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,22 @@
+package Support.Dto.Request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchRecommendationRequest {
+    @NotEmpty(message = "Student IDs are required")
+    private List<String> studentIds;
+
+    // Không lọc nếu để trống
+    private String city;
+    private String district;
+
+    @Min(1)
+    @Max(100)
+    private int limit = 10;
+}
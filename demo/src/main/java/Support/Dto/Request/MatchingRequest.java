@@ -3,6 +3,9 @@ package Support.Dto.Request;
 
 import Class.Dto.Request.SlotDto;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -13,6 +16,9 @@ import java.util.List;
 
 @Data
 public class MatchingRequest {
+    // Dùng để chia nhánh A/B ranker
+    private String studentId;
+
     @NotBlank(message = "Subject ID is required")
     private String subjectId;
 
@@ -29,8 +35,36 @@ public class MatchingRequest {
     @Valid
     private List<SlotDto> desiredSlots;
 
+    // Timezone của desiredSlots, mặc định UTC
+    private String timezone;
+
+    // true: loại gia sư không rảnh vào bất kỳ khung nào trong desiredSlots
+    private boolean availableOnly;
+
     private String description;
 
+    // Vị trí học viên: có radiusKm thì chỉ lấy gia sư trong bán kính (thay cho city/district),
+    // không có thì chỉ cộng điểm gần
+    @DecimalMin("-90.0")
+    @DecimalMax("90.0")
+    private Double latitude;
+
+    @DecimalMin("-180.0")
+    @DecimalMax("180.0")
+    private Double longitude;
+
+    @Positive(message = "Radius must be positive")
+    private Double radiusKm;
+
     @Min(1)
+    @Max(100)
     private int limit = 10;
+
+    // Semantic mode: lấy ứng viên gần queryEmbedding nhất (TutorVectorIndex) rồi mới lọc và chấm điểm.
+    // Không có queryEmbedding thì dùng description
+    private boolean semantic;
+    private List<Float> queryEmbedding;
+
+    // true: trả thêm điểm thành phần của từng gia sư và thời gian từng bước (không qua cache)
+    private boolean explain;
 }
@@ -1,12 +1,15 @@
 package Support.Dto.Request;
 
+import Class.Dto.Request.SlotDto;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 public class TutorFilterRequest {
@@ -17,4 +20,16 @@ public class TutorFilterRequest {
     private Double priceMin;
     private Double priceMax;
     private String gradeLevel;
+    // true: chỉ lấy gia sư có lớp nằm trong [priceMin, priceMax]
+    private boolean withinBudget;
+    // Khung giờ học viên muốn học (theo timezone), dùng để chấm điểm trùng lịch
+    private List<SlotDto> desiredSlots;
+    private String timezone;
+    // true: chỉ lấy gia sư rảnh ít nhất một phần desiredSlots
+    private boolean availableOnly;
+    // Vị trí học viên: có radiusKm thì chỉ lấy gia sư trong bán kính (thay cho city/district),
+    // không có thì chỉ cộng điểm gần
+    private Double latitude;
+    private Double longitude;
+    private Double radiusKm;
 }
@@ -0,0 +1,19 @@
+package Support.Dto.Response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MatchCacheStatsResponse {
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;     // bị đẩy ra do đầy hoặc hết TTL
+    private long invalidationCount; // bị xóa do gia sư thay đổi
+    private double hitRate;
+    private long size;
+}
@@ -0,0 +1,23 @@
+package Support.Dto.Response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MatchExplainResponse {
+    // Ranker.version() đã chấm điểm request này (A/B)
+    private String ranker;
+    // Mỗi phần tử có breakdown
+    private List<TutorMatchResponse> results;
+    private int candidateCount;
+    // stage -> ms (candidates, scoring, sort, map)
+    private Map<String, Double> stageTimingsMs;
+}
@@ -0,0 +1,28 @@
+package Support.Dto.Response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Các thành phần của matchScore (chỉ trả về khi explain=true).
+ * total = trust + rating + bookings + subject + grade + availability + distance + preference - pricePenalty
+ */
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class ScoreBreakdownResponse {
+    private double trust;
+    private double rating;
+    private double bookings;
+    private double subject;
+    private double grade;
+    private double availability;
+    private double distance;
+    // Điểm cộng theo sở thích học viên (chỉ khi request có studentId)
+    private double preference;
+    private double pricePenalty;
+    private double total;
+}
@@ -0,0 +1,17 @@
+package Support.Dto.Response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StudentRecommendationResponse {
+    private String studentId;
+    private List<TutorMatchResponse> tutors;
+}
@@ -0,0 +1,18 @@
+package Support.Dto.Response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TutorMatchPageResponse {
+    private List<TutorMatchResponse> items;
+    // null khi đã hết kết quả
+    private String nextCursor;
+}
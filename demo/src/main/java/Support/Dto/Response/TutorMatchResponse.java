@@ -1,6 +1,7 @@
 package Support.Dto.Response;
 
 import User.DTO.Response.TutorProfileResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,4 +14,12 @@ import lombok.NoArgsConstructor;
 public class TutorMatchResponse {
     private TutorProfileResponse tutor;
     private double matchScore;
+
+    // Khoảng cách (km) tới vị trí học viên, chỉ có khi request gửi tọa độ và gia sư có tọa độ
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double distanceKm;
+
+    // Chỉ có khi explain=true
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ScoreBreakdownResponse breakdown;
 }
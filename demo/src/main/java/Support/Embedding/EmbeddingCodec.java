@@ -0,0 +1,29 @@
+package Support.Embedding;
+
+/**
+ * Mã hóa vector đã chuẩn hóa (mỗi phần tử trong [-1, 1]) thành int8: 1 byte / chiều
+ * thay vì JSON ~10 byte / chiều.
+ */
+public final class EmbeddingCodec {
+
+    private static final float SCALE = 127f;
+
+    private EmbeddingCodec() {
+    }
+
+    public static byte[] encode(float[] vector) {
+        byte[] bytes = new byte[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            bytes[i] = (byte) Math.round(Math.max(-1f, Math.min(1f, vector[i])) * SCALE);
+        }
+        return bytes;
+    }
+
+    public static float[] decode(byte[] bytes) {
+        float[] vector = new float[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            vector[i] = bytes[i] / SCALE;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,79 @@
+package Support.Embedding;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Embedding văn bản chạy local, không cần model service: feature hashing trên unigram + bigram
+ * (đã bỏ dấu), TF tuyến tính dưới (log1p) nhân trọng số từng trường, rồi chuẩn hóa L2.
+ * Kết quả chỉ phụ thuộc vào nội dung nên chạy lại bao nhiêu lần cũng ra cùng vector.
+ */
+public final class HashedTextEmbedder {
+
+    // Đổi MODEL khi đổi thuật toán/số chiều để pipeline embed lại toàn bộ
+    public static final String MODEL = "hashed-tf-256-v1";
+    public static final int DIMENSIONS = 256;
+
+    private HashedTextEmbedder() {
+    }
+
+    public static Document document() {
+        return new Document();
+    }
+
+    public static float[] embed(String text) {
+        return document().add(text, 1f).toVector();
+    }
+
+    public static final class Document {
+        // token -> TF đã nhân trọng số trường
+        private final Map<String, Float> termFrequencies = new HashMap<>();
+
+        public Document add(String text, float weight) {
+            if (text == null || text.isBlank()) return this;
+            String[] tokens = normalize(text).split("[^\\p{L}\\p{N}]+");
+            String previous = null;
+            for (String token : tokens) {
+                if (token.isEmpty()) continue;
+                termFrequencies.merge(token, weight, Float::sum);
+                if (previous != null) termFrequencies.merge(previous + "_" + token, weight, Float::sum);
+                previous = token;
+            }
+            return this;
+        }
+
+        public float[] toVector() {
+            float[] vector = new float[DIMENSIONS];
+            for (Map.Entry<String, Float> term : termFrequencies.entrySet()) {
+                int hash = mix(term.getKey().hashCode());
+                // Bit thấp chọn dấu để các va chạm hash triệt tiêu nhau thay vì cộng dồn
+                float sign = (hash & 1) == 0 ? 1f : -1f;
+                vector[(hash >>> 1) % DIMENSIONS] += sign * (float) Math.log1p(term.getValue());
+            }
+            double norm = 0;
+            for (float v : vector) norm += v * v;
+            if (norm > 0) {
+                float scale = (float) (1 / Math.sqrt(norm));
+                for (int i = 0; i < vector.length; i++) vector[i] *= scale;
+            }
+            return vector;
+        }
+    }
+
+    // fmix32 của MurmurHash3: String.hashCode phân bố kém ở các bit thấp
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static String normalize(String value) {
+        return Normalizer.normalize(value.toLowerCase(), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .replace('đ', 'd');
+    }
+}
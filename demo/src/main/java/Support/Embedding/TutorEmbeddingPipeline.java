@@ -0,0 +1,126 @@
+package Support.Embedding;
+
+import Class.Repository.ClassRepository;
+import Support.Index.TutorEmbeddingsChangedEvent;
+import Support.Outbox.OutboxPublisher;
+import User.Repository.TutorProfileRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pipeline sinh profileEmbedding bằng HashedTextEmbedder.
+ * Mỗi lần chạy chỉ lấy các hồ sơ chưa có embedding, khác model, hoặc có hồ sơ/lớp được sửa sau lần embed trước;
+ * duyệt theo id (keyset), mỗi batch được embed trên embeddingExecutor và ghi lại bằng JDBC batch update.
+ * Sau mỗi batch broadcast TutorEmbeddingsChangedEvent để TutorVectorIndex trên mọi node đọc lại vector từ DB.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TutorEmbeddingPipeline {
+
+    // Ghi thẳng bằng JDBC để không kích hoạt @UpdateTimestamp (nếu không updatedAt luôn mới hơn profileEmbeddedAt)
+    private static final String UPDATE_SQL = "UPDATE tutor_profiles " +
+            "SET profile_embedding_vector = ?, profile_embedding_model = ?, profile_embedded_at = ? " +
+            "WHERE id = ?";
+
+    // Trọng số từng trường khi gộp vào một document
+    private static final float BIO_WEIGHT = 1f;
+    private static final float EDUCATION_WEIGHT = 1.5f;
+    private static final float CERTIFICATE_WEIGHT = 1.5f;
+    private static final float CLASS_TITLE_WEIGHT = 2f;
+    private static final float CLASS_DESCRIPTION_WEIGHT = 1f;
+
+    // Giới hạn số id trong một broadcast để payload nằm gọn trong cột TEXT
+    private static final int BROADCAST_CHUNK = 500;
+
+    private final TutorProfileRepository tutorRepository;
+    private final ClassRepository classRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ThreadPoolTaskExecutor embeddingExecutor;
+    private final OutboxPublisher outboxPublisher;
+
+    @Value("${embedding.pipeline.batch-size:500}")
+    private int batchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(initialDelayString = "${embedding.pipeline.initial-delay-ms:60000}",
+            fixedDelayString = "${embedding.pipeline.interval-ms:300000}")
+    public void runIncremental() {
+        if (!running.compareAndSet(false, true)) return;
+        try {
+            // Hồ sơ sửa sau mốc này sẽ được lần chạy sau nhặt lại
+            LocalDateTime startedAt = LocalDateTime.now();
+            List<CompletableFuture<Integer>> batches = new ArrayList<>();
+            String afterId = "";
+            while (true) {
+                List<String> ids = tutorRepository.findIdsNeedingEmbedding(
+                        HashedTextEmbedder.MODEL, afterId, PageRequest.of(0, batchSize));
+                if (ids.isEmpty()) break;
+                afterId = ids.get(ids.size() - 1);
+                // Queue của executor có giới hạn: khi đầy, thread này tự chạy batch (back-pressure)
+                batches.add(CompletableFuture.supplyAsync(() -> embedBatch(ids, startedAt), embeddingExecutor));
+            }
+
+            int embedded = 0;
+            for (CompletableFuture<Integer> batch : batches) {
+                embedded += batch.join();
+            }
+            if (embedded > 0) {
+                log.info("Embedded {} tutor profiles in {} batches", embedded, batches.size());
+            }
+        } catch (RuntimeException e) {
+            log.error("Tutor embedding pipeline failed", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int embedBatch(List<String> tutorIds, LocalDateTime embeddedAt) {
+        // 3 truy vấn cho cả batch thay vì load từng entity + collection
+        Map<String, HashedTextEmbedder.Document> documents = new HashMap<>();
+        for (Object[] row : tutorRepository.findEmbeddingTexts(tutorIds)) {
+            documents.put((String) row[0], HashedTextEmbedder.document()
+                    .add((String) row[1], BIO_WEIGHT)
+                    .add((String) row[2], EDUCATION_WEIGHT));
+        }
+        for (Object[] row : tutorRepository.findCertificates(tutorIds)) {
+            HashedTextEmbedder.Document document = documents.get((String) row[0]);
+            if (document != null) document.add((String) row[1], CERTIFICATE_WEIGHT);
+        }
+        for (Object[] row : classRepository.findEmbeddingTextsByTutorIds(tutorIds)) {
+            HashedTextEmbedder.Document document = documents.get((String) row[0]);
+            if (document != null) {
+                document.add((String) row[1], CLASS_TITLE_WEIGHT).add((String) row[2], CLASS_DESCRIPTION_WEIGHT);
+            }
+        }
+
+        Timestamp timestamp = Timestamp.valueOf(embeddedAt);
+        List<Object[]> updates = new ArrayList<>(documents.size());
+        for (Map.Entry<String, HashedTextEmbedder.Document> entry : documents.entrySet()) {
+            byte[] encoded = EmbeddingCodec.encode(entry.getValue().toVector());
+            updates.add(new Object[]{encoded, HashedTextEmbedder.MODEL, timestamp, entry.getKey()});
+        }
+        jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+
+        // Index đọc lại bản int8 đã lưu (kèm profileEmbeddedAt cho watermark), giống lúc load lại từ DB
+        List<String> embeddedIds = new ArrayList<>(documents.keySet());
+        for (int from = 0; from < embeddedIds.size(); from += BROADCAST_CHUNK) {
+            List<String> chunk = embeddedIds.subList(from, Math.min(embeddedIds.size(), from + BROADCAST_CHUNK));
+            outboxPublisher.broadcast(new TutorEmbeddingsChangedEvent(new ArrayList<>(chunk)));
+        }
+        return updates.size();
+    }
+}
@@ -0,0 +1,34 @@
+package Support.Entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Kết quả đã trả cho một Idempotency-Key (tầng DB của IdempotencyStore, dùng chung giữa các node).
+ * id là SHA-256 của (scope, userId, key); response = null nghĩa là request đang được xử lý.
+ * claimToken định danh lần giữ chỗ: chỉ lần giữ chỗ đó được ghi kết quả hoặc bị thu hồi đúng dòng đã thấy.
+ */
+@Entity
+@Data
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_expires", columnList = "expiresAt")
+})
+public class IdempotencyRecord {
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    @Column(length = 64, nullable = false)
+    private String requestHash;
+
+    @Column(length = 36)
+    private String claimToken;
+
+    @Column(columnDefinition = "TEXT")
+    private String response;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+}
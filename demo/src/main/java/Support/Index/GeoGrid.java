@@ -0,0 +1,119 @@
+package Support.Index;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lưới đều theo độ (lat/lon) cho truy vấn bán kính: mỗi ô giữ BitSet các slot có tọa độ nằm trong ô.
+ * Truy vấn "trong R km" chỉ duyệt các ô giao với bounding box của vòng tròn rồi lọc lại bằng haversine,
+ * nên chi phí tỉ lệ với số ô chạm tới chứ không với tổng số gia sư.
+ * Không thread-safe: TutorMatchIndex gọi trong lock của nó.
+ */
+final class GeoGrid {
+
+    static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    private final double cellDegrees;
+    private final int latCells;
+    private final int lonCells;
+
+    // key = latCell * lonCells + lonCell
+    private final Map<Long, BitSet> cells = new HashMap<>();
+
+    GeoGrid(double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+        this.latCells = (int) Math.ceil(180 / cellDegrees);
+        this.lonCells = (int) Math.ceil(360 / cellDegrees);
+    }
+
+    void add(int slot, double latitude, double longitude) {
+        cells.computeIfAbsent(key(latCell(latitude), lonCell(longitude)), k -> new BitSet()).set(slot);
+    }
+
+    void remove(int slot, double latitude, double longitude) {
+        long key = key(latCell(latitude), lonCell(longitude));
+        BitSet cell = cells.get(key);
+        if (cell == null) return;
+        cell.clear(slot);
+        if (cell.isEmpty()) cells.remove(key);
+    }
+
+    void clear() {
+        cells.clear();
+    }
+
+    /**
+     * Các slot cách (latitude, longitude) không quá radiusKm; latitudes/longitudes là cột tọa độ của index.
+     */
+    BitSet within(double latitude, double longitude, double radiusKm, double[] latitudes, double[] longitudes) {
+        double latDelta = radiusKm / KM_PER_DEGREE;
+        int minLat = latCell(Math.max(-90, latitude - latDelta));
+        int maxLat = latCell(Math.min(90, latitude + latDelta));
+
+        // Gần cực hoặc bán kính rất lớn thì bounding box phủ hết kinh độ
+        double cosLat = Math.cos(Math.toRadians(Math.min(90, Math.abs(latitude) + latDelta)));
+        double lonDelta = cosLat > 1e-9 ? latDelta / cosLat : 360;
+        int minLon;
+        int lonSpan;
+        if (lonDelta >= 180) {
+            minLon = 0;
+            lonSpan = lonCells;
+        } else {
+            // floorMod xử lý box vắt qua kinh tuyến 180
+            minLon = lonCell(longitude - lonDelta);
+            lonSpan = Math.floorMod(lonCell(longitude + lonDelta) - minLon, lonCells) + 1;
+        }
+
+        BitSet result = new BitSet();
+        long touched = (long) (maxLat - minLat + 1) * lonSpan;
+        if (touched > cells.size()) {
+            // Box lớn hơn số ô đang có dữ liệu: duyệt thẳng các ô có dữ liệu
+            for (BitSet cell : cells.values()) {
+                collect(cell, latitude, longitude, radiusKm, latitudes, longitudes, result);
+            }
+            return result;
+        }
+        for (int lat = minLat; lat <= maxLat; lat++) {
+            for (int i = 0; i < lonSpan; i++) {
+                BitSet cell = cells.get(key(lat, Math.floorMod(minLon + i, lonCells)));
+                if (cell != null) collect(cell, latitude, longitude, radiusKm, latitudes, longitudes, result);
+            }
+        }
+        return result;
+    }
+
+    private static void collect(BitSet cell, double latitude, double longitude, double radiusKm,
+                                double[] latitudes, double[] longitudes, BitSet result) {
+        for (int slot = cell.nextSetBit(0); slot >= 0; slot = cell.nextSetBit(slot + 1)) {
+            if (distanceKm(latitude, longitude, latitudes[slot], longitudes[slot]) <= radiusKm) {
+                result.set(slot);
+            }
+        }
+    }
+
+    /**
+     * Khoảng cách haversine (km).
+     */
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private int latCell(double latitude) {
+        return Math.min(latCells - 1, (int) Math.floor((latitude + 90) / cellDegrees));
+    }
+
+    private int lonCell(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellDegrees), lonCells);
+    }
+
+    private long key(int latCell, int lonCell) {
+        return (long) latCell * lonCells + lonCell;
+    }
+}
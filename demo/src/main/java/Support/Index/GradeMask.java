@@ -0,0 +1,86 @@
+package Support.Index;
+
+import java.text.Normalizer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Chuẩn hóa chuỗi lớp/cấp học (targetGrade, gradeLevel) thành bitmask:
+ * bit 1..12 tương ứng lớp 1..12, bit 13 là đại học/cao đẳng.
+ * Ví dụ: "Lớp 10 - 12" -> bit 10, 11, 12; "THCS" -> bit 6..9.
+ */
+public final class GradeMask {
+
+    public static final int UNIVERSITY = 13;
+
+    private static final Pattern RANGE = Pattern.compile("(\\d{1,2})\\s*(?:-|–|~|den|toi)\\s*(?:lop\\s*)?(\\d{1,2})");
+    private static final Pattern SINGLE = Pattern.compile("\\d{1,2}");
+
+    private static final String[][] LEVEL_KEYWORDS = {
+            // keyword, lớp từ, lớp đến
+            {"tieu hoc", "1", "5"},
+            {"cap 1", "1", "5"},
+            {"thcs", "6", "9"},
+            {"cap 2", "6", "9"},
+            {"thpt", "10", "12"},
+            {"cap 3", "10", "12"},
+            {"dai hoc", "13", "13"},
+            {"cao dang", "13", "13"},
+            {"university", "13", "13"},
+            {"college", "13", "13"},
+    };
+
+    private GradeMask() {
+    }
+
+    public static long parse(String grade) {
+        if (grade == null || grade.isBlank()) return 0;
+        String text = normalize(grade);
+        long mask = 0;
+
+        // 1. Từ khóa cấp học (xóa khỏi chuỗi để "cap 3" không bị hiểu là lớp 3)
+        for (String[] keyword : LEVEL_KEYWORDS) {
+            if (text.contains(keyword[0])) {
+                mask |= range(Integer.parseInt(keyword[1]), Integer.parseInt(keyword[2]));
+                text = text.replace(keyword[0], " ");
+            }
+        }
+
+        // 2. Khoảng lớp: "10-12", "6 den 9"
+        Matcher rangeMatcher = RANGE.matcher(text);
+        StringBuilder rest = new StringBuilder();
+        while (rangeMatcher.find()) {
+            mask |= range(Integer.parseInt(rangeMatcher.group(1)), Integer.parseInt(rangeMatcher.group(2)));
+            rangeMatcher.appendReplacement(rest, " ");
+        }
+        rangeMatcher.appendTail(rest);
+
+        // 3. Lớp đơn lẻ: "lop 9", "grade 11"
+        Matcher singleMatcher = SINGLE.matcher(rest);
+        while (singleMatcher.find()) {
+            int g = Integer.parseInt(singleMatcher.group());
+            mask |= range(g, g);
+        }
+        return mask;
+    }
+
+    public static boolean overlaps(long a, long b) {
+        return (a & b) != 0;
+    }
+
+    private static long range(int from, int to) {
+        long mask = 0;
+        for (int g = Math.max(1, Math.min(from, to)); g <= Math.min(UNIVERSITY, Math.max(from, to)); g++) {
+            mask |= 1L << g;
+        }
+        return mask;
+    }
+
+    // Bỏ dấu tiếng Việt, về chữ thường
+    private static String normalize(String value) {
+        String text = Normalizer.normalize(value.toLowerCase(), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .replace('đ', 'd');
+        return text.replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,102 @@
+package Support.Index;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Các khoảng bận của một gia sư, sắp theo start, kèm prefixMaxEnd[i] = max(end[0..i]) và owner của khoảng đó.
+ * "Có khoảng nào giao [s, e) không" = tìm hi = số khoảng có start < e (binary search) rồi xem prefixMaxEnd[hi-1] > s,
+ * tức O(log n). Để bỏ qua một lớp (owner) mà không phải quét, giữ thêm prefixSecondEnd[i] = max end trong [0..i]
+ * của các khoảng khác owner của prefixMaxEnd[i]: owner bị bỏ qua trùng owner đó thì xét prefixSecondEnd thay thế.
+ * Bất biến sau khi tạo nên đọc đồng thời không cần lock.
+ */
+final class IntervalTimeline {
+
+    static final IntervalTimeline EMPTY = new IntervalTimeline(new long[0], new long[0], new String[0]);
+
+    private final long[] starts;
+    private final long[] prefixMaxEnd;
+    private final String[] prefixMaxOwner;
+    private final long[] prefixSecondEnd;
+
+    private IntervalTimeline(long[] starts, long[] ends, String[] owners) {
+        this.starts = starts;
+        this.prefixMaxEnd = new long[starts.length];
+        this.prefixMaxOwner = new String[starts.length];
+        this.prefixSecondEnd = new long[starts.length];
+        long max = Long.MIN_VALUE;
+        String maxOwner = null;
+        long second = Long.MIN_VALUE;
+        for (int i = 0; i < starts.length; i++) {
+            if (i > 0 && Objects.equals(owners[i], maxOwner)) {
+                max = Math.max(max, ends[i]);
+            } else if (ends[i] > max) {
+                // Owner cũ khác owner mới nên max cũ là end lớn nhất không thuộc owner mới
+                second = max;
+                max = ends[i];
+                maxOwner = owners[i];
+            } else {
+                second = Math.max(second, ends[i]);
+            }
+            prefixMaxEnd[i] = max;
+            prefixMaxOwner[i] = maxOwner;
+            prefixSecondEnd[i] = second;
+        }
+    }
+
+    /**
+     * rows: [start (LocalDateTime), end (LocalDateTime), owner (classId)].
+     */
+    static IntervalTimeline of(List<Object[]> rows) {
+        if (rows.isEmpty()) return EMPTY;
+        Object[][] sorted = rows.toArray(new Object[0][]);
+        Arrays.sort(sorted, Comparator.comparing(row -> (LocalDateTime) row[0]));
+        long[] starts = new long[sorted.length];
+        long[] ends = new long[sorted.length];
+        String[] owners = new String[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            starts[i] = epochSecond((LocalDateTime) sorted[i][0]);
+            ends[i] = epochSecond((LocalDateTime) sorted[i][1]);
+            owners[i] = (String) sorted[i][2];
+        }
+        return new IntervalTimeline(starts, ends, owners);
+    }
+
+    int size() {
+        return starts.length;
+    }
+
+    /**
+     * Có khoảng nào (không thuộc excludedOwner) giao [start, end) không.
+     */
+    boolean overlaps(long start, long end, String excludedOwner) {
+        int hi = lowerBound(end);
+        if (hi == 0) return false;
+        // Mọi khoảng trong [0, hi) bắt đầu trước end: chỉ cần end lớn nhất (không thuộc excludedOwner) > start
+        long maxEnd = excludedOwner != null && excludedOwner.equals(prefixMaxOwner[hi - 1])
+                ? prefixSecondEnd[hi - 1]
+                : prefixMaxEnd[hi - 1];
+        return maxEnd > start;
+    }
+
+    // Số khoảng có start < value
+    private int lowerBound(long value) {
+        int lo = 0;
+        int hi = starts.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] < value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    static long epochSecond(LocalDateTime time) {
+        // Chỉ dùng để so sánh nên không cần múi giờ thật
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+}
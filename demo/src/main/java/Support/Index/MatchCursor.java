@@ -0,0 +1,28 @@
+package Support.Index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursor phân trang matching: snapshot đang đọc và vị trí bắt đầu trang kế tiếp.
+ * Client chỉ thấy chuỗi base64 (opaque).
+ */
+public record MatchCursor(String snapshotId, int offset) {
+
+    public String encode() {
+        String raw = snapshotId + ":" + offset;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MatchCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(':');
+            int offset = Integer.parseInt(raw.substring(separator + 1));
+            if (separator <= 0 || offset < 0) throw new IllegalArgumentException();
+            return new MatchCursor(raw.substring(0, separator), offset);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package Support.Index;
+
+import Support.Dto.Request.TutorFilterRequest;
+
+import java.util.BitSet;
+
+/**
+ * Khóa chuẩn hóa của một bộ lọc matching: hai request cho cùng kết quả thì cho cùng khóa
+ * (chuỗi rỗng = null, gradeLevel/desiredSlots so sánh theo bitmask đã parse,
+ * lọc theo bán kính thì bỏ city/district).
+ */
+public record MatchFilterKey(
+        String subjectId,
+        long gradeMask,
+        String city,
+        String district,
+        Double priceMin,
+        Double priceMax,
+        boolean withinBudget,
+        BitSet desiredSlots,
+        boolean availableOnly,
+        Double latitude,
+        Double longitude,
+        Double radiusKm
+) {
+    public static MatchFilterKey of(TutorFilterRequest req) {
+        long[] slots = WeekBitmap.fromSlots(req.getDesiredSlots(), req.getTimezone());
+        boolean hasOrigin = req.getLatitude() != null && req.getLongitude() != null;
+        boolean radius = hasOrigin && req.getRadiusKm() != null;
+        return new MatchFilterKey(
+                clean(req.getSubjectId()),
+                GradeMask.parse(req.getGradeLevel()),
+                radius ? null : clean(req.getCity()),
+                radius ? null : clean(req.getDistrict()),
+                req.getPriceMin(),
+                req.getPriceMax(),
+                req.isWithinBudget() && (req.getPriceMin() != null || req.getPriceMax() != null),
+                slots != null ? BitSet.valueOf(slots) : null,
+                slots != null && req.isAvailableOnly(),
+                hasOrigin ? req.getLatitude() : null,
+                hasOrigin ? req.getLongitude() : null,
+                radius ? req.getRadiusKm() : null
+        );
+    }
+
+    private static String clean(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
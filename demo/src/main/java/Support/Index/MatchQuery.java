@@ -0,0 +1,41 @@
+package Support.Index;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Bộ lọc matching đã được "biên dịch" sang dạng nguyên thủy (dense id, bitmask)
+ * để vòng lặp chấm điểm không phải so sánh chuỗi.
+ */
+@Getter
+@AllArgsConstructor
+public class MatchQuery {
+    // Subject.denseId, -1 nếu không lọc theo subject hoặc subject không tồn tại
+    private final int subjectId;
+
+    // GradeMask của gradeLevel, 0 nếu không lọc theo lớp (hoặc không parse được)
+    private final long gradeMask;
+
+    private final boolean priceFiltered;
+
+    // Loại hẳn gia sư không có lớp nào trong [priceMin, priceMax] (matchTutors theo budget)
+    private final boolean withinBudget;
+
+    private final double priceMin;
+    private final double priceMax;
+
+    // WeekBitmap khung giờ học viên mong muốn, null nếu không gửi desiredSlots
+    private final long[] desiredSlots;
+    private final int desiredSlotCount;
+
+    // Loại gia sư không trùng ô lịch nào với desiredSlots
+    private final boolean availabilityRequired;
+
+    // Request có vị trí học viên: cộng điểm gần theo khoảng cách
+    private final boolean distanceScored;
+    private final double originLatitude;
+    private final double originLongitude;
+
+    // Khoảng cách (km) mà điểm gần giảm tuyến tính về 0: radiusKm của request hoặc mặc định
+    private final double distanceScaleKm;
+}
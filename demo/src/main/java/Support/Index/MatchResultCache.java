@@ -0,0 +1,122 @@
+package Support.Index;
+
+import Support.Dto.Response.MatchCacheStatsResponse;
+import Support.Dto.Response.TutorMatchResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache kết quả searchTutors/matchTutors theo bộ lọc đã chuẩn hóa.
+ * Khi một gia sư thay đổi, xóa mọi entry cùng phân vùng city/district (trước hoặc sau thay đổi).
+ * Không lọc bớt theo subject: subject chỉ cộng điểm chứ không loại ứng viên, nên gia sư tăng trust/rating
+ * có thể vào top K của bất kỳ bộ lọc nào trong phân vùng.
+ */
+@Component
+public class MatchResultCache {
+
+    private static final String ANY = "*";
+
+    private final Cache<MatchResultKey, List<TutorMatchResponse>> cache;
+
+    // partition -> các key đang có trong cache
+    private final Map<String, Set<MatchResultKey>> keysByPartition = new ConcurrentHashMap<>();
+    private final LongAdder invalidations = new LongAdder();
+
+    public MatchResultCache(@Value("${matching.result-cache.size:10000}") long maximumSize,
+                            @Value("${matching.result-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                // Chạy đồng bộ khi entry bị evict/hết hạn nên không xóa nhầm key vừa được nạp lại
+                .<MatchResultKey, List<TutorMatchResponse>>evictionListener((key, value, cause) -> {
+                    if (key != null) unregister(key);
+                })
+                .build();
+    }
+
+    public List<TutorMatchResponse> get(MatchResultKey key,
+                                        Function<MatchResultKey, List<TutorMatchResponse>> loader) {
+        // Đăng ký trước khi nạp để event đến giữa lúc nạp vẫn thấy key (invalidate chờ lần nạp xong rồi xóa)
+        register(key);
+        return cache.get(key, k -> {
+            List<TutorMatchResponse> result = loader.apply(k);
+            // Đăng ký lại: eviction của entry cũ cùng key (chạy trước trong cùng compute) có thể vừa gỡ key
+            register(k);
+            return result;
+        });
+    }
+
+    @EventListener
+    public void onTutorIndexed(TutorIndexedEvent event) {
+        if (event.tutorId() == null) {
+            invalidateAll();
+            return;
+        }
+        Set<MatchResultKey> affected = ConcurrentHashMap.newKeySet();
+        collect(event.before(), affected);
+        collect(event.after(), affected);
+        affected.forEach(this::invalidate);
+    }
+
+    public void invalidateAll() {
+        long size = cache.estimatedSize();
+        cache.invalidateAll();
+        keysByPartition.clear();
+        invalidations.add(size);
+    }
+
+    public MatchCacheStatsResponse stats() {
+        CacheStats stats = cache.stats();
+        return MatchCacheStatsResponse.builder()
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .evictionCount(stats.evictionCount())
+                .invalidationCount(invalidations.sum())
+                .hitRate(stats.hitRate())
+                .size(cache.estimatedSize())
+                .build();
+    }
+
+    static String partition(String city, String district) {
+        return (city != null ? city : ANY) + "|" + (district != null ? district : ANY);
+    }
+
+    private void collect(TutorIndexedEvent.Location location, Set<MatchResultKey> affected) {
+        if (location == null) return;
+        // Gia sư ở (city, district) xuất hiện trong mọi bộ lọc có city/district khớp hoặc bỏ trống
+        for (String city : new String[]{location.city(), null}) {
+            for (String district : new String[]{location.district(), null}) {
+                Set<MatchResultKey> keys = keysByPartition.get(partition(city, district));
+                if (keys != null) affected.addAll(keys);
+            }
+        }
+    }
+
+    private void register(MatchResultKey key) {
+        keysByPartition.computeIfAbsent(key.partition(), p -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    private void invalidate(MatchResultKey key) {
+        cache.invalidate(key);
+        unregister(key);
+        invalidations.increment();
+    }
+
+    private void unregister(MatchResultKey key) {
+        Set<MatchResultKey> keys = keysByPartition.get(key.partition());
+        if (keys != null) keys.remove(key);
+    }
+}
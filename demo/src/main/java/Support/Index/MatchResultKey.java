@@ -0,0 +1,13 @@
+package Support.Index;
+
+/**
+ * Khóa của MatchResultCache: bộ lọc đã chuẩn hóa + số kết quả + Ranker.version()
+ * (học viên ở nhánh A/B khác nhau, hoặc trọng số vừa đổi, không dùng chung kết quả).
+ */
+public record MatchResultKey(MatchFilterKey filter, int limit, String ranker) {
+
+    // "city|district", "*" = không lọc
+    public String partition() {
+        return MatchResultCache.partition(filter.city(), filter.district());
+    }
+}
@@ -0,0 +1,12 @@
+package Support.Index;
+
+/**
+ * Kết quả matching đã xếp hạng của một MatchFilterKey; các trang sau chỉ cắt mảng này.
+ * Lưu tutorId thay vì slot vì slot có thể được tái sử dụng khi gia sư rời index.
+ */
+public record MatchSnapshot(String id, String[] tutorIds, double[] scores) {
+
+    public int size() {
+        return tutorIds.length;
+    }
+}
@@ -0,0 +1,53 @@
+package Support.Index;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Cache có giới hạn các MatchSnapshot theo bộ lọc + ranker (MatchResultKey, limit = kích thước snapshot), TTL ngắn để "load more"
+ * không phải chạy lại toàn bộ matching.
+ * Trang đầu tra theo bộ lọc (dùng chung giữa các học viên); các trang sau tra theo snapshotId trong cursor,
+ * nên snapshot được dựng lại không làm offset cũ rơi vào một bảng xếp hạng khác.
+ */
+@Component
+public class MatchSnapshotCache {
+
+    private final Cache<MatchResultKey, MatchSnapshot> byFilter;
+    private final Cache<String, Entry> byId;
+
+    public MatchSnapshotCache(@Value("${matching.page.cache-size:1000}") long maximumSize,
+                              @Value("${matching.page.ttl-seconds:60}") long ttlSeconds) {
+        this.byFilter = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public MatchSnapshot get(MatchResultKey key, Function<MatchResultKey, MatchSnapshot> loader) {
+        return byFilter.get(key, k -> {
+            MatchSnapshot snapshot = loader.apply(k);
+            byId.put(snapshot.id(), new Entry(k, snapshot));
+            return snapshot;
+        });
+    }
+
+    /**
+     * Snapshot mà cursor trỏ tới; null nếu đã hết hạn hoặc cursor được tạo cho bộ lọc/ranker khác.
+     */
+    public MatchSnapshot find(String snapshotId, MatchResultKey key) {
+        Entry entry = byId.getIfPresent(snapshotId);
+        return entry != null && entry.key().equals(key) ? entry.snapshot() : null;
+    }
+
+    private record Entry(MatchResultKey key, MatchSnapshot snapshot) {
+    }
+}
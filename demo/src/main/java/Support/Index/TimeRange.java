@@ -0,0 +1,9 @@
+package Support.Index;
+
+import java.time.LocalDateTime;
+
+/**
+ * Khoảng thời gian nửa mở [start, end).
+ */
+public record TimeRange(LocalDateTime start, LocalDateTime end) {
+}
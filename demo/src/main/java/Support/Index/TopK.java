@@ -0,0 +1,103 @@
+package Support.Index;
+
+/**
+ * Min-heap kích thước cố định giữ K slot có điểm cao nhất.
+ * Điểm và slot lưu trong mảng nguyên thủy nên không cấp phát object trong vòng chấm điểm.
+ */
+public class TopK {
+
+    private final int capacity;
+    private final double[] scores;
+    private final int[] slots;
+    private int size;
+
+    public TopK(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        this.scores = new double[this.capacity];
+        this.slots = new int[this.capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Điểm thấp nhất trong heap (điểm thứ K) - ứng viên phải vượt qua điểm này mới được giữ lại.
+     */
+    public double minScore() {
+        return size == 0 ? Double.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public void offer(int slot, double score) {
+        if (capacity == 0) return;
+        if (size < capacity) {
+            scores[size] = score;
+            slots[size] = slot;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            scores[0] = score;
+            slots[0] = slot;
+            siftDown(0, size);
+        }
+    }
+
+    public void merge(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.slots[i], other.scores[i]);
+        }
+    }
+
+    /**
+     * Heap sort tại chỗ: sau khi gọi, slotAt(0) là điểm cao nhất.
+     * Heap không còn dùng để offer được nữa.
+     */
+    public void sortDescending() {
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    public int slotAt(int i) {
+        return slots[i];
+    }
+
+    public double scoreAt(int i) {
+        return scores[i];
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int n) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= n) break;
+            int smallest = left;
+            int right = left + 1;
+            if (right < n && scores[right] < scores[left]) smallest = right;
+            if (scores[i] <= scores[smallest]) break;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double s = scores[a];
+        scores[a] = scores[b];
+        scores[b] = s;
+        int t = slots[a];
+        slots[a] = slots[b];
+        slots[b] = t;
+    }
+}
@@ -0,0 +1,7 @@
+package Support.Index;
+
+/**
+ * Phát ra khi gia sư cập nhật lịch rảnh, để TutorMatchIndex dựng lại bitmap lịch của gia sư đó.
+ */
+public record TutorAvailabilityChangedEvent(String tutorId) {
+}
@@ -0,0 +1,8 @@
+package Support.Index;
+
+/**
+ * Phát ra mỗi khi TutorProfile hoặc Class của gia sư thay đổi,
+ * để các index/cache trong bộ nhớ cập nhật lại sau khi transaction commit.
+ */
+public record TutorChangedEvent(String tutorId) {
+}
@@ -0,0 +1,9 @@
+package Support.Index;
+
+import java.util.List;
+
+/**
+ * Phát ra sau mỗi batch của TutorEmbeddingPipeline, để TutorVectorIndex trên mọi node đọc lại embedding mới.
+ */
+public record TutorEmbeddingsChangedEvent(List<String> tutorIds) {
+}
@@ -0,0 +1,13 @@
+package Support.Index;
+
+/**
+ * TutorMatchIndex phát ra (đồng bộ) sau khi cập nhật một gia sư, kèm vị trí trước/sau khi cập nhật
+ * để các cache kết quả chỉ xóa những phân vùng bị ảnh hưởng.
+ * tutorId null = toàn bộ index vừa được dựng lại.
+ */
+public record TutorIndexedEvent(String tutorId, Location before, Location after) {
+
+    // null nếu gia sư không có trong index ở thời điểm đó
+    public record Location(String city, String district) {
+    }
+}
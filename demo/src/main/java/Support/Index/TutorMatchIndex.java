@@ -0,0 +1,533 @@
+package Support.Index;
+
+import Class.Entity.ClassStatus;
+import Subject.Entity.Subject;
+import Subject.Repository.SubjectRepository;
+import User.Entity.Status;
+import User.Entity.TutorAvailability;
+import User.Entity.TutorProfile;
+import User.Entity.VerificationStatus;
+import User.Repository.TutorAvailabilityRepository;
+import User.Repository.TutorProfileRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Index matching thường trú trong bộ nhớ.
+ * Mỗi gia sư VERIFIED + ACTIVE chiếm một slot; dữ liệu chấm điểm được lưu theo cột
+ * (mảng nguyên thủy) và phân vùng theo city/district để searchTutors không phải chạm JPA.
+ * Subject/grade đã được chuẩn hóa lúc lưu lớp (subjectDenseId, gradeMask) nên khớp bằng phép AND.
+ * Bitmap lịch rảnh chỉ được dựng lại khi gia sư cập nhật lịch (TutorAvailabilityChangedEvent).
+ * Gia sư có tọa độ được đưa thêm vào GeoGrid cho truy vấn theo bán kính.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TutorMatchIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long[] NO_BITS = new long[0];
+    private static final double[] NO_PRICES = new double[0];
+    // ~5.5 km theo vĩ độ mỗi ô
+    private static final double GEO_CELL_DEGREES = 0.05;
+    // Khoảng cách mà điểm gần giảm về 0 khi request không gửi radiusKm
+    private static final double DEFAULT_DISTANCE_SCALE_KM = 10;
+
+    private final TutorProfileRepository tutorRepository;
+    private final SubjectRepository subjectRepository;
+    private final TutorAvailabilityRepository availabilityRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // --- Cột dữ liệu: index mảng = slot ---
+    private String[] tutorIds = new String[INITIAL_CAPACITY];
+    private String[] userIds = new String[INITIAL_CAPACITY];
+    private String[] bios = new String[INITIAL_CAPACITY];
+    private boolean[] hasNationalId = new boolean[INITIAL_CAPACITY];
+    private String[] cities = new String[INITIAL_CAPACITY];
+    private String[] districts = new String[INITIAL_CAPACITY];
+    private double[] trustScores = new double[INITIAL_CAPACITY];
+    private double[] averageRatings = new double[INITIAL_CAPACITY];
+    private int[] completedBookings = new int[INITIAL_CAPACITY];
+    private long[][] subjectBits = new long[INITIAL_CAPACITY][]; // bit = Subject.denseId (lớp PUBLISHED)
+    private long[] gradeMasks = new long[INITIAL_CAPACITY];        // OR gradeMask của mọi lớp
+    // Giá các lớp PUBLISHED, sắp xếp tăng dần (phần tử đầu/cuối chính là khoảng giá)
+    private double[][] prices = new double[INITIAL_CAPACITY][];
+    private long[][] availability = new long[INITIAL_CAPACITY][];  // WeekBitmap theo UTC
+    private double[] latitudes = new double[INITIAL_CAPACITY];     // NaN nếu gia sư chưa có tọa độ
+    private double[] longitudes = new double[INITIAL_CAPACITY];
+
+    private int size;
+    private final BitSet live = new BitSet();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final Map<String, Integer> slotByTutorId = new HashMap<>();
+
+    // city -> district -> slots (null được lưu dưới key "")
+    private final Map<String, Map<String, BitSet>> partitions = new HashMap<>();
+
+    // Chỉ chứa gia sư có tọa độ
+    private final GeoGrid geoGrid = new GeoGrid(GEO_CELL_DEGREES);
+
+    // subjectId -> Subject.denseId, để dịch subjectId của request
+    private final Map<String, Integer> subjectDenseIds = new HashMap<>();
+
+    // ================= BUILD & UPDATE =================
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        List<TutorProfile> tutors = tutorRepository.findPotentialTutors(VerificationStatus.VERIFIED, null, null);
+        List<Subject> subjects = subjectRepository.findAll();
+        Map<String, List<TutorAvailability>> availabilityByTutor = availabilityRepository
+                .findByTutorVerificationStatus(VerificationStatus.VERIFIED).stream()
+                .collect(Collectors.groupingBy(a -> a.getTutor().getId()));
+        lock.writeLock().lock();
+        try {
+            clear();
+            for (Subject subject : subjects) {
+                if (subject.getDenseId() != null) subjectDenseIds.put(subject.getId(), subject.getDenseId());
+            }
+            for (TutorProfile tutor : tutors) {
+                upsertLocked(tutor, WeekBitmap.fromAvailabilities(
+                        availabilityByTutor.getOrDefault(tutor.getId(), List.of())));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Tutor match index built with {} tutors", tutors.size());
+        eventPublisher.publishEvent(new TutorIndexedEvent(null, null, null));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onTutorChanged(TutorChangedEvent event) {
+        refresh(event.tutorId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onAvailabilityChanged(TutorAvailabilityChangedEvent event) {
+        if (event.tutorId() == null) return;
+        long[] bits = WeekBitmap.fromAvailabilities(
+                availabilityRepository.findByTutorIdOrderByDayOfWeekAscStartMinuteAsc(event.tutorId()));
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotByTutorId.get(event.tutorId());
+            // Gia sư chưa có trong index sẽ được dựng lịch khi được thêm vào
+            if (slot != null) availability[slot] = bits;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void refresh(String tutorId) {
+        if (tutorId == null) return;
+        TutorProfile tutor = tutorRepository.findWithClassesById(tutorId).orElse(null);
+        TutorIndexedEvent.Location before = read(() -> location(tutorId));
+        if (tutor == null || !isIndexable(tutor)) {
+            remove(tutorId);
+        } else {
+            upsert(tutor);
+        }
+        TutorIndexedEvent.Location after = read(() -> location(tutorId));
+        // Listener chạy đồng bộ ngay sau khi index đã cập nhật (VD: MatchResultCache)
+        eventPublisher.publishEvent(new TutorIndexedEvent(tutorId, before, after));
+    }
+
+    private TutorIndexedEvent.Location location(String tutorId) {
+        Integer slot = slotByTutorId.get(tutorId);
+        if (slot == null) return null;
+        return new TutorIndexedEvent.Location(cities[slot], districts[slot]);
+    }
+
+    public void upsert(TutorProfile tutor) {
+        // Chỉ gia sư mới vào index mới cần dựng lịch; gia sư đã có giữ nguyên bitmap cũ
+        long[] bits = null;
+        boolean indexed = read(() -> slotByTutorId.containsKey(tutor.getId()));
+        if (!indexed) {
+            bits = WeekBitmap.fromAvailabilities(
+                    availabilityRepository.findByTutorIdOrderByDayOfWeekAscStartMinuteAsc(tutor.getId()));
+        }
+        lock.writeLock().lock();
+        try {
+            upsertLocked(tutor, bits);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String tutorId) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotByTutorId.remove(tutorId);
+            if (slot == null) return;
+            partition(cities[slot], districts[slot]).clear(slot);
+            if (hasLocation(slot)) geoGrid.remove(slot, latitudes[slot], longitudes[slot]);
+            live.clear(slot);
+            tutorIds[slot] = null;
+            userIds[slot] = null;
+            bios[slot] = null;
+            subjectBits[slot] = null;
+            prices[slot] = null;
+            availability[slot] = null;
+            freeSlots.push(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isIndexable(TutorProfile tutor) {
+        return tutor.getVerificationStatus() == VerificationStatus.VERIFIED
+                && tutor.getUser() != null
+                && tutor.getUser().getStatus() == Status.ACTIVE;
+    }
+
+    // availabilityBits null: giữ bitmap lịch hiện tại của slot
+    private void upsertLocked(TutorProfile tutor, long[] availabilityBits) {
+        Integer existing = slotByTutorId.get(tutor.getId());
+        int slot;
+        if (existing != null) {
+            slot = existing;
+            partition(cities[slot], districts[slot]).clear(slot);
+            if (hasLocation(slot)) geoGrid.remove(slot, latitudes[slot], longitudes[slot]);
+        } else {
+            slot = freeSlots.isEmpty() ? size++ : freeSlots.pop();
+            ensureCapacity(slot + 1);
+            slotByTutorId.put(tutor.getId(), slot);
+        }
+
+        tutorIds[slot] = tutor.getId();
+        userIds[slot] = tutor.getUserId();
+        bios[slot] = tutor.getBio();
+        hasNationalId[slot] = tutor.getNationalIdNumber() != null;
+        cities[slot] = tutor.getCity();
+        districts[slot] = tutor.getDistrict();
+        boolean located = tutor.getLatitude() != null && tutor.getLongitude() != null;
+        latitudes[slot] = located ? tutor.getLatitude() : Double.NaN;
+        longitudes[slot] = located ? tutor.getLongitude() : Double.NaN;
+        trustScores[slot] = tutor.getTrustScore() != null ? tutor.getTrustScore() : 0;
+        averageRatings[slot] = tutor.getAverageRating() != null ? tutor.getAverageRating() : 0;
+        completedBookings[slot] = tutor.getTotalCompletedBookings() != null ? tutor.getTotalCompletedBookings() : 0;
+
+        long[] subjects = NO_BITS;
+        long grades = 0;
+        double[] tutorPrices = NO_PRICES;
+        if (tutor.getClasses() != null) {
+            tutorPrices = new double[tutor.getClasses().size()];
+            int priceCount = 0;
+            for (Class.Entity.Class c : tutor.getClasses()) {
+                Integer subjectId = subjectDenseId(c);
+                if (subjectId != null && c.getStatus() == ClassStatus.PUBLISHED) {
+                    subjects = setBit(subjects, subjectId);
+                }
+                // Lớp cũ chưa có gradeMask thì parse tại chỗ
+                grades |= c.getGradeMask() != null ? c.getGradeMask() : GradeMask.parse(c.getTargetGrade());
+                if (c.getPricePerHour() != null && c.getStatus() == ClassStatus.PUBLISHED) {
+                    tutorPrices[priceCount++] = c.getPricePerHour();
+                }
+            }
+            tutorPrices = Arrays.copyOf(tutorPrices, priceCount);
+            Arrays.sort(tutorPrices);
+        }
+
+        subjectBits[slot] = subjects;
+        gradeMasks[slot] = grades;
+        prices[slot] = tutorPrices;
+        if (availabilityBits != null) {
+            availability[slot] = availabilityBits;
+        } else if (availability[slot] == null) {
+            availability[slot] = new long[WeekBitmap.WORDS];
+        }
+
+        partition(cities[slot], districts[slot]).set(slot);
+        if (located) geoGrid.add(slot, latitudes[slot], longitudes[slot]);
+        live.set(slot);
+    }
+
+    private void clear() {
+        for (int slot = 0; slot < size; slot++) {
+            tutorIds[slot] = null;
+            userIds[slot] = null;
+            bios[slot] = null;
+            subjectBits[slot] = null;
+            prices[slot] = null;
+            availability[slot] = null;
+        }
+        size = 0;
+        live.clear();
+        freeSlots.clear();
+        slotByTutorId.clear();
+        partitions.clear();
+        geoGrid.clear();
+        subjectDenseIds.clear();
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= tutorIds.length) return;
+        int capacity = Math.max(required, tutorIds.length * 2);
+        tutorIds = Arrays.copyOf(tutorIds, capacity);
+        userIds = Arrays.copyOf(userIds, capacity);
+        bios = Arrays.copyOf(bios, capacity);
+        hasNationalId = Arrays.copyOf(hasNationalId, capacity);
+        cities = Arrays.copyOf(cities, capacity);
+        districts = Arrays.copyOf(districts, capacity);
+        trustScores = Arrays.copyOf(trustScores, capacity);
+        averageRatings = Arrays.copyOf(averageRatings, capacity);
+        completedBookings = Arrays.copyOf(completedBookings, capacity);
+        subjectBits = Arrays.copyOf(subjectBits, capacity);
+        gradeMasks = Arrays.copyOf(gradeMasks, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        availability = Arrays.copyOf(availability, capacity);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+    }
+
+    private BitSet partition(String city, String district) {
+        return partitions
+                .computeIfAbsent(city != null ? city : "", k -> new HashMap<>())
+                .computeIfAbsent(district != null ? district : "", k -> new BitSet());
+    }
+
+    private Integer subjectDenseId(Class.Entity.Class c) {
+        if (c.getSubjectId() == null) return null;
+        if (c.getSubjectDenseId() != null) {
+            subjectDenseIds.put(c.getSubjectId(), c.getSubjectDenseId());
+            return c.getSubjectDenseId();
+        }
+        return subjectDenseIds.get(c.getSubjectId());
+    }
+
+    private static long[] setBit(long[] bits, int bit) {
+        int word = bit >>> 6;
+        if (word >= bits.length) bits = Arrays.copyOf(bits, word + 1);
+        bits[word] |= 1L << bit;
+        return bits;
+    }
+
+    // ================= QUERY =================
+
+    /**
+     * Chạy action trong read lock để các slot/cột không bị thay đổi giữa chừng.
+     */
+    public <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public MatchQuery compileQuery(String subjectId, String gradeLevel, Double priceMin, Double priceMax,
+                                   boolean withinBudget, long[] desiredSlots, boolean availableOnly,
+                                   Double latitude, Double longitude, Double radiusKm) {
+        int subject = -1;
+        if (subjectId != null) {
+            subject = subjectDenseIds.getOrDefault(subjectId, -1);
+        }
+
+        long gradeMask = GradeMask.parse(gradeLevel);
+
+        boolean priceFiltered = priceMin != null || priceMax != null;
+        boolean hasOrigin = latitude != null && longitude != null;
+        return new MatchQuery(
+                subject,
+                gradeMask,
+                priceFiltered,
+                priceFiltered && withinBudget,
+                priceMin != null ? priceMin : Double.NEGATIVE_INFINITY,
+                priceMax != null ? priceMax : Double.POSITIVE_INFINITY,
+                desiredSlots,
+                desiredSlots != null ? WeekBitmap.count(desiredSlots) : 0,
+                desiredSlots != null && availableOnly,
+                hasOrigin,
+                hasOrigin ? latitude : Double.NaN,
+                hasOrigin ? longitude : Double.NaN,
+                radiusKm != null ? radiusKm : DEFAULT_DISTANCE_SCALE_KM
+        );
+    }
+
+    /**
+     * Trả về các slot thuộc city/district (null = không lọc).
+     */
+    public int[] candidates(String city, String district) {
+        BitSet result;
+        if (city == null && district == null) {
+            result = live;
+        } else {
+            result = new BitSet();
+            for (Map.Entry<String, Map<String, BitSet>> byCity : partitions.entrySet()) {
+                if (city != null && !city.equals(byCity.getKey())) continue;
+                for (Map.Entry<String, BitSet> byDistrict : byCity.getValue().entrySet()) {
+                    if (district != null && !district.equals(byDistrict.getKey())) continue;
+                    result.or(byDistrict.getValue());
+                }
+            }
+        }
+        return result.stream().toArray();
+    }
+
+    /**
+     * Slot của các tutorId cho trước (VD: kết quả ANN), giữ thứ tự và áp city/district.
+     */
+    public int[] candidates(String city, String district, List<String> tutorIds) {
+        int[] result = new int[tutorIds.size()];
+        int n = 0;
+        for (String tutorId : tutorIds) {
+            Integer slot = slotByTutorId.get(tutorId);
+            if (slot == null) continue;
+            if (city != null && !city.equals(cities[slot])) continue;
+            if (district != null && !district.equals(districts[slot])) continue;
+            result[n++] = slot;
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Slot có tọa độ trong bán kính radiusKm quanh (latitude, longitude), tra qua GeoGrid.
+     */
+    public int[] candidatesWithin(double latitude, double longitude, double radiusKm) {
+        return geoGrid.within(latitude, longitude, radiusKm, latitudes, longitudes).stream().toArray();
+    }
+
+    /**
+     * Slot của các tutorId cho trước (VD: kết quả ANN), giữ thứ tự và chỉ lấy gia sư trong bán kính.
+     */
+    public int[] candidatesWithin(double latitude, double longitude, double radiusKm, List<String> tutorIds) {
+        int[] result = new int[tutorIds.size()];
+        int n = 0;
+        for (String tutorId : tutorIds) {
+            Integer slot = slotByTutorId.get(tutorId);
+            if (slot == null) continue;
+            if (!(distanceKm(slot, latitude, longitude) <= radiusKm)) continue;
+            result[n++] = slot;
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Khoảng cách (km) từ gia sư tới điểm cho trước; NaN nếu gia sư chưa có tọa độ.
+     */
+    public double distanceKm(int slot, double latitude, double longitude) {
+        if (!hasLocation(slot)) return Double.NaN;
+        return GeoGrid.distanceKm(latitude, longitude, latitudes[slot], longitudes[slot]);
+    }
+
+    private boolean hasLocation(int slot) {
+        return !Double.isNaN(latitudes[slot]);
+    }
+
+    public boolean hasSubject(int slot, int subjectId) {
+        long[] bits = subjectBits[slot];
+        int word = subjectId >>> 6;
+        return word < bits.length && (bits[word] & (1L << subjectId)) != 0;
+    }
+
+    public boolean matchesGrade(int slot, long gradeMask) {
+        return GradeMask.overlaps(gradeMasks[slot], gradeMask);
+    }
+
+    /**
+     * Số ô 15 phút trùng giữa lịch rảnh của gia sư và khung giờ học viên mong muốn.
+     */
+    public int availabilityOverlap(int slot, long[] desiredSlots) {
+        return WeekBitmap.overlap(availability[slot], desiredSlots);
+    }
+
+    /**
+     * Khoảng cách từ giá lớp gần nhất của gia sư tới [min, max]; 0 nếu có lớp nằm trong khoảng
+     * hoặc gia sư chưa có lớp PUBLISHED nào có giá.
+     */
+    public double pricePenalty(int slot, double min, double max) {
+        double[] tutorPrices = prices[slot];
+        int n = tutorPrices.length;
+        if (n == 0) return 0;
+
+        // Lớp rẻ nhất có giá >= min; chỉ nó và lớp liền trước mới có thể gần range nhất
+        int i = lowerBound(tutorPrices, min);
+        if (i < n && tutorPrices[i] <= max) return 0;
+
+        double best = Double.POSITIVE_INFINITY;
+        if (i < n) best = tutorPrices[i] - max;
+        if (i > 0) best = Math.min(best, min - tutorPrices[i - 1]);
+        return best;
+    }
+
+    /**
+     * Gia sư có ít nhất một lớp PUBLISHED với giá trong [min, max].
+     */
+    public boolean hasPriceWithin(int slot, double min, double max) {
+        double[] tutorPrices = prices[slot];
+        int i = lowerBound(tutorPrices, min);
+        return i < tutorPrices.length && tutorPrices[i] <= max;
+    }
+
+    // Vị trí phần tử đầu tiên >= value
+    private static int lowerBound(double[] sorted, double value) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // -1 nếu subject không tồn tại hoặc chưa có denseId
+    public int subjectDenseId(String subjectId) {
+        return read(() -> subjectDenseIds.getOrDefault(subjectId, -1));
+    }
+
+    // -1 nếu gia sư không (còn) trong index
+    public int slotOf(String tutorId) {
+        Integer slot = slotByTutorId.get(tutorId);
+        return slot != null ? slot : -1;
+    }
+
+    public String tutorId(int slot) {
+        return tutorIds[slot];
+    }
+
+    public String userId(int slot) {
+        return userIds[slot];
+    }
+
+    public String bio(int slot) {
+        return bios[slot];
+    }
+
+    public boolean hasNationalId(int slot) {
+        return hasNationalId[slot];
+    }
+
+    public double trustScore(int slot) {
+        return trustScores[slot];
+    }
+
+    public double averageRating(int slot) {
+        return averageRatings[slot];
+    }
+
+    public int completedBookings(int slot) {
+        return completedBookings[slot];
+    }
+
+    public int size() {
+        return read(live::cardinality);
+    }
+}
@@ -0,0 +1,8 @@
+package Support.Index;
+
+/**
+ * Phát ra khi Session của lớp hoặc Schedule của booking thuộc gia sư thay đổi,
+ * để TutorScheduleIndex bỏ timeline của gia sư sau khi transaction commit.
+ */
+public record TutorScheduleChangedEvent(String tutorId) {
+}
@@ -0,0 +1,111 @@
+package Support.Index;
+
+import Class.Entity.SessionStatus;
+import Class.Repository.SessionRepository;
+import Support.Entity.ScheduleStatus;
+import Support.Repository.ScheduleRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Lịch bận sắp tới của từng gia sư (Session của lớp + Schedule của booking) để chặn trùng lịch giữa các lớp.
+ * Timeline được nạp lười cho từng gia sư (2 truy vấn) và giữ trong Caffeine; bị bỏ khi lịch của gia sư
+ * thay đổi (TutorScheduleChangedEvent), TTL chỉ là lưới an toàn.
+ * Khoảng bận gắn với classId nên khi sửa lịch của một lớp có thể bỏ qua lịch cũ của chính lớp đó.
+ * Lúc ghi lịch thì dùng conflictsForUpdate: người gọi đã khóa dòng tutor_profiles, timeline được đọc thẳng từ DB.
+ */
+@Component
+public class TutorScheduleIndex {
+
+    // Session còn chiếm lịch của gia sư
+    private static final List<SessionStatus> BUSY_SESSION_STATUSES =
+            List.of(SessionStatus.SCHEDULED, SessionStatus.IN_PROGRESS);
+
+    private final SessionRepository sessionRepository;
+    private final ScheduleRepository scheduleRepository;
+    private final LoadingCache<String, IntervalTimeline> timelines;
+
+    public TutorScheduleIndex(SessionRepository sessionRepository,
+                              ScheduleRepository scheduleRepository,
+                              @Value("${booking.conflict.cache-size:10000}") long maximumSize,
+                              @Value("${booking.conflict.ttl-minutes:10}") long ttlMinutes) {
+        this.sessionRepository = sessionRepository;
+        this.scheduleRepository = scheduleRepository;
+        this.timelines = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build(this::load);
+    }
+
+    // ================= QUERY =================
+
+    /**
+     * [start, end) có trùng lịch bận nào của gia sư không (bỏ qua lịch của excludedClassId nếu khác null).
+     */
+    public boolean overlaps(String tutorId, LocalDateTime start, LocalDateTime end, String excludedClassId) {
+        return timelines.get(tutorId).overlaps(
+                IntervalTimeline.epochSecond(start), IntervalTimeline.epochSecond(end), excludedClassId);
+    }
+
+    /**
+     * Kiểm tra cả một lịch đề xuất (vd. recurrence 20 tuần) trên cùng một timeline: không truy vấn DB theo từng buổi.
+     * Trả về các khoảng đề xuất bị trùng, kể cả trùng lẫn nhau; rỗng nếu hợp lệ.
+     */
+    public List<TimeRange> conflicts(String tutorId, List<TimeRange> proposed, String excludedClassId) {
+        if (proposed.isEmpty()) return List.of();
+        return conflicts(timelines.get(tutorId), proposed, excludedClassId);
+    }
+
+    /**
+     * Như conflicts nhưng bỏ qua cache: timeline trong cache có thể chưa thấy lịch mà node khác vừa commit.
+     * Người gọi phải khóa dòng gia sư (TutorProfileRepository.findByUserIdForUpdate) ở câu lệnh đầu tiên
+     * của transaction, để hai lần ghi lịch đồng thời chạy lần lượt và lần sau đọc được lịch lần trước vừa ghi.
+     */
+    public List<TimeRange> conflictsForUpdate(String tutorId, List<TimeRange> proposed, String excludedClassId) {
+        if (proposed.isEmpty()) return List.of();
+        return conflicts(load(tutorId), proposed, excludedClassId);
+    }
+
+    private static List<TimeRange> conflicts(IntervalTimeline timeline, List<TimeRange> proposed,
+                                             String excludedClassId) {
+        List<TimeRange> sorted = new ArrayList<>(proposed);
+        sorted.sort(Comparator.comparing(TimeRange::start));
+        List<TimeRange> result = new ArrayList<>();
+        long previousMaxEnd = Long.MIN_VALUE;
+        for (TimeRange range : sorted) {
+            long start = IntervalTimeline.epochSecond(range.start());
+            long end = IntervalTimeline.epochSecond(range.end());
+            if (start < previousMaxEnd || timeline.overlaps(start, end, excludedClassId)) {
+                result.add(range);
+            }
+            previousMaxEnd = Math.max(previousMaxEnd, end);
+        }
+        return result;
+    }
+
+    // ================= INVALIDATION =================
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTutorScheduleChanged(TutorScheduleChangedEvent event) {
+        timelines.invalidate(event.tutorId());
+    }
+
+    private IntervalTimeline load(String tutorId) {
+        LocalDateTime now = LocalDateTime.now();
+        // [start, end, classId]
+        List<Object[]> rows = new ArrayList<>(
+                sessionRepository.findBusyRangesByTutor(tutorId, BUSY_SESSION_STATUSES, now));
+        rows.addAll(scheduleRepository.findBusyRangesByTutor(tutorId, ScheduleStatus.ACTIVE, now));
+        return IntervalTimeline.of(rows);
+    }
+}
@@ -0,0 +1,577 @@
+package Support.Index;
+
+import Support.Embedding.EmbeddingCodec;
+import Support.Embedding.HashedTextEmbedder;
+import User.Repository.TutorProfileRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Index ANN (IVF-flat) trên TutorProfile.profileEmbedding.
+ * Vector được chuẩn hóa (cosine = tích vô hướng), gom theo cụm k-means và lưu liền nhau trong file
+ * memory-mapped, nên khởi động lại chỉ cần map file thay vì parse lại JSON từ MySQL.
+ * Thay đổi sau lần build được giữ trong deltas và gộp vào file khi đủ compactThreshold hoặc lúc tắt ứng dụng.
+ * File ghi kèm số gia sư có embedding và watermark (profileEmbeddedAt lớn nhất đã có trong file); lúc khởi động
+ * chỉ dùng lại file khi cả hai khớp DB, nên embed lại hoặc delta mất khi crash trước compact đều dẫn tới rebuild.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TutorVectorIndex {
+
+    private static final int MAGIC = 0x54564958; // "TVIX"
+    private static final int VERSION = 2;
+    private static final int KMEANS_ITERATIONS = 10;
+    private static final int TRAIN_POINTS_PER_LIST = 64;
+    private static final long KMEANS_SEED = 42L;
+    private static final float[] REMOVED = new float[0];
+    private static final long NO_WATERMARK = -1L;
+    // Cả file được map bằng một MappedByteBuffer nên không thể vượt Integer.MAX_VALUE byte (~2 GB)
+    private static final long MAX_FILE_BYTES = Integer.MAX_VALUE;
+
+    private final TutorProfileRepository tutorRepository;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolTaskExecutor vectorIndexExecutor;
+
+    @Value("${matching.vector.path:data/tutor-vectors.ivf}")
+    private String path;
+
+    // Chỉ index embedding của model này; để trống = nhận mọi model (miễn cùng số chiều)
+    @Value("${matching.vector.model:" + HashedTextEmbedder.MODEL + "}")
+    private String model;
+
+    // Số cụm được quét cho mỗi truy vấn
+    @Value("${matching.vector.nprobe:8}")
+    private int nprobe;
+
+    @Value("${matching.vector.compact-threshold:1000}")
+    private int compactThreshold;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    // tutorId -> vector đã chuẩn hóa, ghi đè dữ liệu trong file (REMOVED = gia sư không còn embedding)
+    private final Map<String, float[]> deltas = new ConcurrentHashMap<>();
+    private final ReentrantLock compactLock = new ReentrantLock();
+    // profileEmbeddedAt lớn nhất (epoch millis) trong các delta đã nhận, chưa ghi xuống file
+    private final AtomicLong deltaWatermark = new AtomicLong(NO_WATERMARK);
+
+    // ================= BUILD & UPDATE =================
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        long expectedCount = tutorRepository.countWithEmbedding();
+        long expectedWatermark = watermark(tutorRepository.findMaxEmbeddedAt());
+        try {
+            Snapshot loaded = readFile(Path.of(path));
+            if (loaded != null && loaded.sourceCount == expectedCount && loaded.watermark == expectedWatermark) {
+                snapshot = loaded;
+                log.info("Tutor vector index loaded from {} with {} vectors", path, loaded.count());
+                return;
+            }
+        } catch (IOException e) {
+            log.warn("Cannot read tutor vector index {}, rebuilding: {}", path, e.getMessage());
+        }
+        rebuild();
+    }
+
+    /**
+     * Dựng lại toàn bộ index từ DB rồi ghi ra file.
+     */
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        List<Object[]> rows = tutorRepository.findAllEmbeddings();
+        List<String> ids = new ArrayList<>(rows.size());
+        List<float[]> vectors = new ArrayList<>(rows.size());
+        int dim = 0;
+        long watermark = NO_WATERMARK;
+        for (Object[] row : rows) {
+            watermark = Math.max(watermark, watermark(row[4]));
+            if (!acceptModel(row[2])) continue;
+            float[] vector = toVector(row[3] != null ? row[3] : row[1]);
+            if (vector == null) continue;
+            if (dim == 0) dim = vector.length;
+            if (vector.length != dim) continue;
+            ids.add((String) row[0]);
+            vectors.add(normalize(vector));
+        }
+        compactLock.lock();
+        try {
+            install(ids, vectors, dim, rows.size(), watermark);
+            deltas.clear();
+            deltaWatermark.set(NO_WATERMARK);
+        } finally {
+            compactLock.unlock();
+        }
+        log.info("Tutor vector index rebuilt with {} vectors", ids.size());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onTutorChanged(TutorChangedEvent event) {
+        if (event.tutorId() == null) return;
+        List<Object[]> rows = tutorRepository.findEmbeddingById(event.tutorId());
+        if (rows.isEmpty()) {
+            apply(event.tutorId(), null, null);
+            return;
+        }
+        Object[] row = rows.get(0);
+        apply(event.tutorId(), acceptModel(row[1]) ? toVector(row[2] != null ? row[2] : row[0]) : null, row[3]);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onTutorsEmbedded(TutorEmbeddingsChangedEvent event) {
+        if (event.tutorIds() == null || event.tutorIds().isEmpty()) return;
+        Set<String> missing = new HashSet<>(event.tutorIds());
+        for (Object[] row : tutorRepository.findEmbeddingsByIds(event.tutorIds())) {
+            String tutorId = (String) row[0];
+            missing.remove(tutorId);
+            apply(tutorId, acceptModel(row[2]) ? toVector(row[3] != null ? row[3] : row[1]) : null, row[4]);
+        }
+        missing.forEach(tutorId -> apply(tutorId, null, null));
+    }
+
+    private void apply(String tutorId, float[] vector, Object embeddedAt) {
+        upsert(tutorId, vector);
+        // Cập nhật sau upsert: watermark chỉ tính những thay đổi đã nằm trong deltas
+        deltaWatermark.accumulateAndGet(watermark(embeddedAt), Math::max);
+    }
+
+    /**
+     * Cập nhật vector của một gia sư (null = xóa khỏi index).
+     * Chỉ gọi qua apply() để watermark của file theo kịp DB.
+     */
+    private void upsert(String tutorId, float[] embedding) {
+        float[] vector = embedding != null && embedding.length > 0 ? normalize(embedding.clone()) : null;
+        int dim = snapshot.dim;
+        if (vector != null && dim != 0 && vector.length != dim) {
+            log.warn("Embedding of tutor {} has {} dimensions, index expects {}", tutorId, vector.length, dim);
+            vector = null;
+        }
+        // Phần lớn TutorChangedEvent không đổi embedding (VD: sửa lớp) -> bỏ qua
+        float[] current = currentVector(tutorId);
+        if (vector == null ? current == null : Arrays.equals(vector, current)) return;
+
+        deltas.put(tutorId, vector != null ? vector : REMOVED);
+        if (deltas.size() >= compactThreshold && !compactLock.isLocked()) {
+            vectorIndexExecutor.execute(this::compact);
+        }
+    }
+
+    /**
+     * Gộp deltas vào snapshot hiện tại (không đọc lại JSON từ DB) và ghi đè file.
+     */
+    public void compact() {
+        if (!compactLock.tryLock()) return;
+        try {
+            if (deltas.isEmpty()) return;
+            // Đọc watermark trước khi chụp deltas: mọi delta góp vào watermark đều có trong applied
+            long pendingWatermark = deltaWatermark.get();
+            Map<String, float[]> applied = new HashMap<>(deltas);
+            Snapshot current = snapshot;
+            int dim = current.dim;
+
+            List<String> ids = new ArrayList<>(current.count() + applied.size());
+            List<float[]> vectors = new ArrayList<>(current.count() + applied.size());
+            for (int pos = 0; pos < current.count(); pos++) {
+                if (applied.containsKey(current.ids[pos])) continue;
+                ids.add(current.ids[pos]);
+                vectors.add(current.vector(pos));
+            }
+            for (Map.Entry<String, float[]> entry : applied.entrySet()) {
+                float[] vector = entry.getValue();
+                if (vector == REMOVED) continue;
+                if (dim == 0) dim = vector.length;
+                if (vector.length != dim) continue;
+                ids.add(entry.getKey());
+                vectors.add(vector);
+            }
+
+            install(ids, vectors, dim, tutorRepository.countWithEmbedding(),
+                    Math.max(current.watermark, pendingWatermark));
+            // Chỉ bỏ những delta chưa bị ghi đè trong lúc compact
+            applied.forEach(deltas::remove);
+            log.info("Tutor vector index compacted: {} vectors, {} deltas applied", ids.size(), applied.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to compact tutor vector index", e);
+        } finally {
+            compactLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flush() {
+        compact();
+    }
+
+    // ================= QUERY =================
+
+    /**
+     * Trả về tối đa n tutorId gần query nhất (cosine), tốt nhất đứng đầu.
+     */
+    public List<String> nearest(float[] query, int n) {
+        Snapshot s = snapshot;
+        List<Map.Entry<String, float[]>> pending = new ArrayList<>(deltas.entrySet());
+        Set<String> overridden = new HashSet<>(pending.size() * 2);
+        for (Map.Entry<String, float[]> entry : pending) {
+            overridden.add(entry.getKey());
+        }
+
+        float[] q = normalize(query.clone());
+        int dim = s.dim != 0 ? s.dim : q.length;
+        if (q.length != dim) {
+            throw new RuntimeException("Query embedding must have " + dim + " dimensions");
+        }
+
+        TopK top = new TopK(n);
+        if (s.count() > 0) {
+            // 1. Chọn nprobe cụm có centroid gần query nhất
+            TopK lists = new TopK(Math.min(nprobe, s.nlist));
+            for (int list = 0; list < s.nlist; list++) {
+                lists.offer(list, dot(s.centroids, list * dim, q));
+            }
+            // 2. Quét tuần tự các vector trong cụm (liền nhau trong file)
+            for (int i = 0; i < lists.size(); i++) {
+                int list = lists.slotAt(i);
+                for (int pos = s.offsets[list]; pos < s.offsets[list + 1]; pos++) {
+                    if (overridden.contains(s.ids[pos])) continue;
+                    top.offer(pos, s.dot(pos, q));
+                }
+            }
+        }
+        // 3. Vector thay đổi sau lần build: quét hết (số lượng nhỏ)
+        for (int j = 0; j < pending.size(); j++) {
+            float[] vector = pending.get(j).getValue();
+            if (vector.length != dim) continue;
+            top.offer(s.count() + j, dot(vector, 0, q));
+        }
+
+        top.sortDescending();
+        List<String> result = new ArrayList<>(top.size());
+        for (int i = 0; i < top.size(); i++) {
+            int pos = top.slotAt(i);
+            result.add(pos < s.count() ? s.ids[pos] : pending.get(pos - s.count()).getKey());
+        }
+        return result;
+    }
+
+    public int size() {
+        Snapshot s = snapshot;
+        int removed = 0;
+        int added = 0;
+        for (Map.Entry<String, float[]> entry : deltas.entrySet()) {
+            boolean inSnapshot = s.positions().containsKey(entry.getKey());
+            if (entry.getValue() == REMOVED) {
+                if (inSnapshot) removed++;
+            } else if (!inSnapshot) {
+                added++;
+            }
+        }
+        return s.count() - removed + added;
+    }
+
+    // ================= HELPERS =================
+
+    private float[] currentVector(String tutorId) {
+        float[] delta = deltas.get(tutorId);
+        if (delta != null) return delta == REMOVED ? null : delta;
+        Snapshot s = snapshot;
+        Integer pos = s.positions().get(tutorId);
+        return pos != null ? s.vector(pos) : null;
+    }
+
+    private boolean acceptModel(Object embeddingModel) {
+        return model.isEmpty() || model.equals(embeddingModel);
+    }
+
+    // profileEmbeddingVector là int8 nhị phân; profileEmbedding đi qua JsonConverter nên có thể là List hoặc chuỗi JSON
+    // profileEmbeddedAt -> epoch millis (UTC); null = gia sư chưa có thời điểm embed
+    private static long watermark(Object embeddedAt) {
+        return embeddedAt instanceof LocalDateTime time
+                ? time.toInstant(ZoneOffset.UTC).toEpochMilli()
+                : NO_WATERMARK;
+    }
+
+    private float[] toVector(Object raw) {
+        if (raw == null) return null;
+        try {
+            if (raw instanceof byte[] bytes) {
+                return bytes.length > 0 ? EmbeddingCodec.decode(bytes) : null;
+            }
+            if (raw instanceof List<?> list) {
+                float[] vector = new float[list.size()];
+                for (int i = 0; i < vector.length; i++) {
+                    vector[i] = ((Number) list.get(i)).floatValue();
+                }
+                return vector.length > 0 ? vector : null;
+            }
+            float[] vector = objectMapper.readValue(raw.toString(), float[].class);
+            return vector != null && vector.length > 0 ? vector : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) return vector;
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private static float dot(float[] a, int offset, float[] q) {
+        float sum = 0;
+        for (int d = 0; d < q.length; d++) {
+            sum += a[offset + d] * q[d];
+        }
+        return sum;
+    }
+
+    // ================= IVF BUILD & FILE =================
+
+    private void install(List<String> ids, List<float[]> vectors, int dim, long sourceCount, long watermark) {
+        try {
+            Path file = Path.of(path);
+            writeFile(file, ids, vectors, dim, sourceCount, watermark);
+            snapshot = readFile(file);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write tutor vector index " + path, e);
+        }
+    }
+
+    /**
+     * Layout file: header | centroids (nlist * dim float) | offsets (nlist + 1 int)
+     * | vectors (count * dim float, gom theo cụm) | ids (short length + UTF-8).
+     */
+    private static void writeFile(Path file, List<String> ids, List<float[]> vectors, int dim, long sourceCount,
+                                  long watermark) throws IOException {
+        int n = vectors.size();
+        long vectorBytes = (long) n * dim * Float.BYTES;
+        if (vectorBytes > MAX_FILE_BYTES) {
+            throw new IOException(n + " vectors of " + dim + " dimensions need " + vectorBytes
+                    + " bytes, more than the " + MAX_FILE_BYTES + " bytes a single mapping supports");
+        }
+        int nlist = n == 0 ? 0 : Math.max(1, Math.min(n, (int) Math.sqrt(n)));
+        float[][] centroids = trainCentroids(vectors, nlist, dim);
+
+        // Gán mỗi vector vào cụm gần nhất rồi sắp xếp theo cụm (counting sort)
+        int[] assignment = new int[n];
+        int[] offsets = new int[nlist + 1];
+        for (int i = 0; i < n; i++) {
+            assignment[i] = nearestCentroid(centroids, vectors.get(i));
+            offsets[assignment[i] + 1]++;
+        }
+        for (int list = 0; list < nlist; list++) {
+            offsets[list + 1] += offsets[list];
+        }
+        int[] order = new int[n];
+        int[] cursor = Arrays.copyOf(offsets, nlist);
+        for (int i = 0; i < n; i++) {
+            order[cursor[assignment[i]]++] = i;
+        }
+
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(dim);
+            out.writeInt(n);
+            out.writeInt(nlist);
+            out.writeLong(sourceCount);
+            out.writeLong(watermark);
+            for (float[] centroid : centroids) {
+                for (float v : centroid) out.writeFloat(v);
+            }
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            for (int i : order) {
+                for (float v : vectors.get(i)) out.writeFloat(v);
+            }
+            for (int i : order) {
+                byte[] id = ids.get(i).getBytes(StandardCharsets.UTF_8);
+                out.writeShort(id.length);
+                out.write(id);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Snapshot readFile(Path file) throws IOException {
+        if (!Files.exists(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > MAX_FILE_BYTES) {
+                throw new IOException("Index file is " + channel.size() + " bytes, more than the "
+                        + MAX_FILE_BYTES + " bytes a single mapping supports");
+            }
+            // Mapping vẫn dùng được sau khi đóng channel; vector nằm ngoài heap
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return null;
+            int dim = buffer.getInt();
+            int n = buffer.getInt();
+            int nlist = buffer.getInt();
+            long sourceCount = buffer.getLong();
+            long watermark = buffer.getLong();
+
+            float[] centroids = new float[nlist * dim];
+            buffer.asFloatBuffer().get(centroids);
+            buffer.position(buffer.position() + centroids.length * Float.BYTES);
+
+            int[] offsets = new int[nlist + 1];
+            buffer.asIntBuffer().get(offsets);
+            buffer.position(buffer.position() + offsets.length * Integer.BYTES);
+
+            // File <= MAX_FILE_BYTES và phần vector nằm gọn trong phần còn lại nên ép về int không bị cắt
+            long vectorBytes = (long) n * dim * Float.BYTES;
+            if (vectorBytes < 0 || vectorBytes > buffer.remaining()) {
+                throw new IOException("Vector section of " + vectorBytes + " bytes exceeds the "
+                        + buffer.remaining() + " bytes left in the file");
+            }
+            int vectorLength = (int) vectorBytes;
+            FloatBuffer vectors = buffer.slice(buffer.position(), vectorLength).asFloatBuffer();
+            buffer.position(buffer.position() + vectorLength);
+
+            String[] ids = new String[n];
+            for (int i = 0; i < n; i++) {
+                byte[] id = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(id);
+                ids[i] = new String(id, StandardCharsets.UTF_8);
+            }
+            return new Snapshot(dim, nlist, centroids, offsets, vectors, ids, sourceCount, watermark);
+        }
+    }
+
+    // Spherical k-means trên một mẫu ngẫu nhiên (tối đa TRAIN_POINTS_PER_LIST điểm mỗi cụm)
+    private static float[][] trainCentroids(List<float[]> vectors, int nlist, int dim) {
+        if (nlist == 0) return new float[0][];
+        List<float[]> sample = new ArrayList<>(vectors);
+        Collections.shuffle(sample, new Random(KMEANS_SEED));
+        sample = sample.subList(0, Math.min(sample.size(), nlist * TRAIN_POINTS_PER_LIST));
+
+        float[][] centroids = new float[nlist][];
+        for (int list = 0; list < nlist; list++) {
+            centroids[list] = sample.get(list).clone();
+        }
+        for (int iteration = 0; iteration < KMEANS_ITERATIONS; iteration++) {
+            float[][] sums = new float[nlist][dim];
+            int[] counts = new int[nlist];
+            for (float[] vector : sample) {
+                int list = nearestCentroid(centroids, vector);
+                counts[list]++;
+                for (int d = 0; d < dim; d++) sums[list][d] += vector[d];
+            }
+            for (int list = 0; list < nlist; list++) {
+                // Cụm rỗng giữ nguyên centroid cũ
+                if (counts[list] > 0) centroids[list] = normalize(sums[list]);
+            }
+        }
+        return centroids;
+    }
+
+    private static int nearestCentroid(float[][] centroids, float[] vector) {
+        int best = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int list = 0; list < centroids.length; list++) {
+            float score = dot(centroids[list], 0, vector);
+            if (score > bestScore) {
+                bestScore = score;
+                best = list;
+            }
+        }
+        return best;
+    }
+
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(0, 0, new float[0], new int[]{0},
+                FloatBuffer.allocate(0), new String[0], 0, NO_WATERMARK);
+
+        final int dim;
+        final int nlist;
+        final float[] centroids;
+        final int[] offsets;
+        final FloatBuffer vectors;
+        final String[] ids;
+        final long sourceCount;
+        final long watermark;
+        private Map<String, Integer> positions;
+
+        Snapshot(int dim, int nlist, float[] centroids, int[] offsets, FloatBuffer vectors, String[] ids,
+                 long sourceCount, long watermark) {
+            this.dim = dim;
+            this.nlist = nlist;
+            this.centroids = centroids;
+            this.offsets = offsets;
+            this.vectors = vectors;
+            this.ids = ids;
+            this.sourceCount = sourceCount;
+            this.watermark = watermark;
+        }
+
+        int count() {
+            return ids.length;
+        }
+
+        // Chỉ cần khi cập nhật, không phải khi tìm kiếm -> dựng lười
+        synchronized Map<String, Integer> positions() {
+            if (positions == null) {
+                positions = new HashMap<>(ids.length * 2);
+                for (int pos = 0; pos < ids.length; pos++) {
+                    positions.put(ids[pos], pos);
+                }
+            }
+            return positions;
+        }
+
+        float dot(int pos, float[] q) {
+            int base = pos * dim;
+            float sum = 0;
+            for (int d = 0; d < dim; d++) {
+                sum += vectors.get(base + d) * q[d];
+            }
+            return sum;
+        }
+
+        float[] vector(int pos) {
+            float[] vector = new float[dim];
+            vectors.get(pos * dim, vector);
+            return vector;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package Support.Index;
+
+import Class.Dto.Request.SlotDto;
+import User.Entity.TutorAvailability;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Lịch rảnh trong tuần dạng bitmap: mỗi bit là một ô 15 phút tính theo UTC,
+ * bit 0 = 00:00 ngày 0. Độ trùng lịch giữa hai bên = popcount của phép AND.
+ */
+public final class WeekBitmap {
+
+    public static final int SLOT_MINUTES = 15;
+    public static final int MINUTES_PER_WEEK = 7 * 24 * 60;
+    public static final int SLOTS = MINUTES_PER_WEEK / SLOT_MINUTES; // 672
+    public static final int WORDS = (SLOTS + 63) >>> 6;               // 11
+
+    private WeekBitmap() {
+    }
+
+    /**
+     * Gộp các dòng TutorAvailability (mỗi dòng có timezone riêng) thành một bitmap UTC.
+     */
+    public static long[] fromAvailabilities(List<TutorAvailability> availabilities) {
+        long[] bits = new long[WORDS];
+        if (availabilities == null) return bits;
+        for (TutorAvailability a : availabilities) {
+            if (a.getDayOfWeek() == null || a.getStartMinute() == null || a.getEndMinute() == null) continue;
+            addRange(bits, a.getDayOfWeek(), a.getStartMinute(), a.getEndMinute(), offsetMinutes(a.getTimezone()));
+        }
+        return bits;
+    }
+
+    /**
+     * Bitmap các khung giờ học viên mong muốn, null nếu không có khung nào.
+     */
+    public static long[] fromSlots(List<SlotDto> slots, String timezone) {
+        if (slots == null || slots.isEmpty()) return null;
+        int offset = offsetMinutes(timezone);
+        long[] bits = new long[WORDS];
+        for (SlotDto slot : slots) {
+            if (slot.getDayOfWeek() == null || slot.getStartMinute() == null || slot.getEndMinute() == null) continue;
+            addRange(bits, slot.getDayOfWeek(), slot.getStartMinute(), slot.getEndMinute(), offset);
+        }
+        return count(bits) > 0 ? bits : null;
+    }
+
+    public static int overlap(long[] a, long[] b) {
+        int words = Math.min(a.length, b.length);
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(a[w] & b[w]);
+        }
+        return count;
+    }
+
+    public static int count(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // Ô nào giao với [start, end) đều được bật; khoảng vượt qua cuối tuần thì quay vòng về ngày 0
+    private static void addRange(long[] bits, int dayOfWeek, int startMinute, int endMinute, int offsetMinutes) {
+        if (endMinute <= startMinute) return;
+        int start = Math.floorMod(dayOfWeek, 7) * 24 * 60 + startMinute - offsetMinutes;
+        int length = Math.min(endMinute - startMinute, MINUTES_PER_WEEK);
+        int firstSlot = Math.floorDiv(start, SLOT_MINUTES);
+        int lastSlot = Math.floorDiv(start + length - 1, SLOT_MINUTES);
+        for (int s = firstSlot; s <= lastSlot; s++) {
+            int slot = Math.floorMod(s, SLOTS);
+            bits[slot >>> 6] |= 1L << slot;
+        }
+    }
+
+    // Độ lệch so với UTC tại thời điểm hiện tại; timezone sai thì coi như UTC
+    private static int offsetMinutes(String timezone) {
+        if (timezone == null || timezone.isBlank()) return 0;
+        try {
+            return ZoneId.of(timezone).getRules().getOffset(Instant.now()).getTotalSeconds() / 60;
+        } catch (DateTimeException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package Support.Outbox;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Event làm mới cache trong bộ nhớ, phát cho mọi node (khác outbox_events: không node nào "lấy" riêng, không xóa khi đọc).
+ * Mỗi node tự giữ cursor theo createdAt; dòng cũ hơn retention được dọn định kỳ.
+ */
+@Entity
+@Data
+@Table(name = "cache_broadcasts", indexes = {
+        @Index(name = "idx_cache_broadcasts_created", columnList = "createdAt, id")
+})
+public class CacheBroadcast {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Node đã ghi (node đó đã tự áp dụng sau commit nên bỏ qua)
+    @Column(nullable = false, length = 36)
+    private String originNode;
+
+    @Column(nullable = false, length = 200)
+    private String eventType;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    private LocalDateTime createdAt;
+}
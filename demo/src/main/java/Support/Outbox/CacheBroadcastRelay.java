@@ -0,0 +1,105 @@
+package Support.Outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Áp dụng các event làm mới cache do node khác ghi vào cache_broadcasts (fan-out: mọi node đều đọc, không xóa khi đọc).
+ * Cursor theo createdAt của riêng node này; mỗi lần đọc lùi lại overlap-seconds để không sót dòng của transaction
+ * commit muộn hơn dòng có id lớn hơn, các id đã áp dụng trong cửa sổ đó được bỏ qua.
+ * Event được phát lại qua ApplicationEventPublisher ngoài transaction, nên các
+ * @TransactionalEventListener(fallbackExecution = true) hiện có chạy ngay.
+ */
+@Component
+@Slf4j
+public class CacheBroadcastRelay {
+
+    // Keyset theo (created_at, id) để cửa sổ overlap nhiều dòng vẫn đọc hết qua nhiều trang
+    private static final String POLL_SQL = "SELECT id, origin_node, event_type, payload, created_at " +
+            "FROM cache_broadcasts WHERE created_at > ? OR (created_at = ? AND id > ?) " +
+            "ORDER BY created_at, id LIMIT ?";
+    private static final String CLEANUP_SQL = "DELETE FROM cache_broadcasts WHERE created_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String nodeId;
+
+    private final long overlapSeconds;
+    private final long retentionMinutes;
+    private final int batchSize;
+
+    // Chỉ thread của @Scheduled đụng tới
+    private LocalDateTime cursor = LocalDateTime.now();
+    private final Map<Long, LocalDateTime> seen = new HashMap<>();
+
+    public CacheBroadcastRelay(JdbcTemplate jdbcTemplate,
+                               ObjectMapper objectMapper,
+                               ApplicationEventPublisher eventPublisher,
+                               OutboxPublisher outboxPublisher,
+                               @Value("${outbox.broadcast.overlap-seconds:30}") long overlapSeconds,
+                               @Value("${outbox.broadcast.retention-minutes:10}") long retentionMinutes,
+                               @Value("${outbox.broadcast.batch-size:2000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.nodeId = outboxPublisher.nodeId();
+        this.overlapSeconds = Math.max(1, overlapSeconds);
+        this.retentionMinutes = Math.max(1, retentionMinutes);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.broadcast.poll-interval-ms:500}")
+    public synchronized void poll() {
+        Timestamp afterCreatedAt = Timestamp.valueOf(cursor.minusSeconds(overlapSeconds));
+        long afterId = 0;
+        List<Row> rows;
+        do {
+            rows = jdbcTemplate.query(POLL_SQL,
+                    (rs, i) -> new Row(rs.getLong("id"), rs.getString("origin_node"), rs.getString("event_type"),
+                            rs.getString("payload"), rs.getTimestamp("created_at").toLocalDateTime()),
+                    afterCreatedAt, afterCreatedAt, afterId, batchSize);
+            for (Row row : rows) apply(row);
+            if (!rows.isEmpty()) {
+                Row last = rows.get(rows.size() - 1);
+                afterCreatedAt = Timestamp.valueOf(last.createdAt());
+                afterId = last.id();
+            }
+        } while (rows.size() == batchSize);
+
+        LocalDateTime horizon = cursor.minusSeconds(overlapSeconds);
+        seen.values().removeIf(createdAt -> createdAt.isBefore(horizon));
+    }
+
+    private void apply(Row row) {
+        if (seen.putIfAbsent(row.id(), row.createdAt()) != null) return;
+        if (row.createdAt().isAfter(cursor)) cursor = row.createdAt();
+        if (nodeId.equals(row.originNode())) return;
+        try {
+            eventPublisher.publishEvent(objectMapper.readValue(row.payload(), Class.forName(row.eventType())));
+        } catch (Exception e) {
+            // Cache vẫn còn TTL làm lưới an toàn, không chặn các event sau
+            log.warn("Cache broadcast {} ({}) could not be applied", row.id(), row.eventType(), e);
+        }
+    }
+
+    @Scheduled(cron = "${outbox.broadcast.cleanup-cron:0 */5 * * * *}")
+    public void cleanup() {
+        int deleted = jdbcTemplate.update(CLEANUP_SQL, Timestamp.valueOf(LocalDateTime.now().minusMinutes(retentionMinutes)));
+        if (deleted > 0) log.debug("Deleted {} expired cache broadcasts", deleted);
+    }
+
+    private record Row(long id, String originNode, String eventType, String payload, LocalDateTime createdAt) {
+    }
+}
@@ -0,0 +1,34 @@
+package Support.Outbox;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một domain event chờ relay giao, được ghi cùng transaction với thay đổi sinh ra nó.
+ * availableAt: thời điểm được lấy tiếp (lease khi đang giao, backoff khi giao lỗi).
+ */
+@Entity
+@Data
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_available", columnList = "availableAt, id")
+})
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 200)
+    private String eventType;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime availableAt;
+    private Integer attempts = 0;
+
+    @Column(length = 500)
+    private String lastError;
+}
@@ -0,0 +1,58 @@
+package Support.Outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Ghi domain event trong transaction hiện tại của người gọi, theo hai kiểu:
+ * - publish: side effect thật (thông báo, tính lại trust score) vào outbox_events, OutboxRelay giao cho đúng một node.
+ * - broadcast: làm mới cache trong bộ nhớ. Node đang ghi áp dụng ngay sau commit (@TransactionalEventListener AFTER_COMMIT),
+ *   các node khác đọc cache_broadcasts qua CacheBroadcastRelay.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxPublisher {
+
+    private static final String INSERT_SQL = "INSERT INTO outbox_events " +
+            "(event_type, payload, created_at, available_at, attempts) VALUES (?, ?, ?, ?, 0)";
+    private static final String BROADCAST_SQL = "INSERT INTO cache_broadcasts " +
+            "(origin_node, event_type, payload, created_at) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Định danh node trong vòng đời process
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public void publish(Object event) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update(INSERT_SQL, event.getClass().getName(), toJson(event), now, now);
+    }
+
+    public void broadcast(Object event) {
+        eventPublisher.publishEvent(event);
+        jdbcTemplate.update(BROADCAST_SQL, nodeId, event.getClass().getName(), toJson(event),
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    String nodeId() {
+        return nodeId;
+    }
+
+    private String toJson(Object event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("JSON Error", e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package Support.Outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Giao event side effect trong outbox_events cho OutboxSubscriber, ít nhất một lần và chỉ trên một node (competing consumer).
+ * Event làm mới cache trong bộ nhớ không đi qua đây mà qua OutboxPublisher.broadcast / CacheBroadcastRelay.
+ * Mỗi vòng: transaction ngắn lấy một lô bằng SELECT ... FOR UPDATE SKIP LOCKED và đặt lease (availableAt),
+ * rồi giao ngoài transaction; giao xong thì xóa, lỗi thì tăng attempts và lùi availableAt (backoff).
+ * Node chết giữa chừng thì lease hết hạn và lô được giao lại. Nhiều node chạy song song không lấy trùng lô.
+ * Mỗi kiểu event được giao theo lô cho các OutboxSubscriber của kiểu đó.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private static final String CLAIM_SQL = "SELECT id, event_type, payload, attempts FROM outbox_events " +
+            "WHERE available_at <= ? ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String LEASE_SQL = "UPDATE outbox_events SET available_at = ? WHERE id = ?";
+    private static final String DELETE_SQL = "DELETE FROM outbox_events WHERE id = ?";
+    private static final String RETRY_SQL = "UPDATE outbox_events " +
+            "SET attempts = attempts + 1, available_at = ?, last_error = ? WHERE id = ?";
+
+    private static final long MAX_BACKOFF_SECONDS = 600;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Map<Class<?>, List<OutboxSubscriber<?>>> subscribers = new HashMap<>();
+    private final Counter delivered;
+    private final Counter failed;
+
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long leaseSeconds;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate,
+                       TransactionTemplate transactionTemplate,
+                       ObjectMapper objectMapper,
+                       List<OutboxSubscriber<?>> subscribers,
+                       MeterRegistry registry,
+                       @Value("${outbox.batch-size:500}") int batchSize,
+                       @Value("${outbox.max-batches-per-run:20}") int maxBatchesPerRun,
+                       @Value("${outbox.lease-seconds:60}") long leaseSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        for (OutboxSubscriber<?> subscriber : subscribers) {
+            this.subscribers.computeIfAbsent(subscriber.eventType(), t -> new ArrayList<>()).add(subscriber);
+        }
+        this.delivered = Counter.builder("outbox.events.delivered").register(registry);
+        this.failed = Counter.builder("outbox.events.failed").register(registry);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+        this.leaseSeconds = Math.max(1, leaseSeconds);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval-ms:200}")
+    public void relay() {
+        if (!running.compareAndSet(false, true)) return;
+        try {
+            // Lô đầy thì lấy tiếp ngay, tối đa max-batches-per-run lô mỗi lần
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                List<Row> batch = claim();
+                if (batch.isEmpty()) break;
+                dispatch(batch);
+                if (batch.size() < batchSize) break;
+            }
+        } catch (RuntimeException e) {
+            log.error("Outbox relay failed", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private List<Row> claim() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Row> rows = jdbcTemplate.query(CLAIM_SQL,
+                    (rs, i) -> new Row(rs.getLong("id"), rs.getString("event_type"),
+                            rs.getString("payload"), rs.getInt("attempts")),
+                    Timestamp.valueOf(now), batchSize);
+            if (!rows.isEmpty()) {
+                Timestamp leaseUntil = Timestamp.valueOf(now.plusSeconds(leaseSeconds));
+                jdbcTemplate.batchUpdate(LEASE_SQL, rows, rows.size(), (ps, row) -> {
+                    ps.setTimestamp(1, leaseUntil);
+                    ps.setLong(2, row.id());
+                });
+            }
+            return rows;
+        });
+    }
+
+    private void dispatch(List<Row> batch) {
+        // Gom theo kiểu, giữ thứ tự ghi trong từng kiểu
+        Map<String, List<Row>> byType = new LinkedHashMap<>();
+        for (Row row : batch) byType.computeIfAbsent(row.eventType(), t -> new ArrayList<>()).add(row);
+
+        List<Row> done = new ArrayList<>();
+        for (Map.Entry<String, List<Row>> group : byType.entrySet()) {
+            try {
+                deliver(group.getKey(), group.getValue());
+                done.addAll(group.getValue());
+            } catch (Exception e) {
+                log.warn("Outbox delivery of {} {} events failed", group.getValue().size(), group.getKey(), e);
+                scheduleRetry(group.getValue(), e);
+            }
+        }
+        if (!done.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_SQL, done, done.size(), (ps, row) -> ps.setLong(1, row.id()));
+            delivered.increment(done.size());
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void deliver(String eventType, List<Row> rows) throws Exception {
+        Class<?> type = Class.forName(eventType);
+        List<Object> events = new ArrayList<>(rows.size());
+        for (Row row : rows) events.add(objectMapper.readValue(row.payload(), type));
+
+        List<OutboxSubscriber<?>> targets = subscribers.get(type);
+        if (targets == null) {
+            // Giữ lại để giao khi có subscriber (vd. rolling deploy), không bỏ event
+            throw new RuntimeException("No outbox subscriber for " + eventType);
+        }
+        for (OutboxSubscriber subscriber : targets) {
+            subscriber.onEvents(events);
+        }
+    }
+
+    private void scheduleRetry(List<Row> rows, Exception error) {
+        String message = String.valueOf(error.getMessage());
+        String lastError = message.length() > 500 ? message.substring(0, 500) : message;
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(RETRY_SQL, rows, rows.size(), (ps, row) -> {
+            // Backoff mũ theo số lần lỗi: 1s, 2s, 4s ... tối đa 10 phút; không bỏ event nào
+            long delay = Math.min(MAX_BACKOFF_SECONDS, 1L << Math.min(row.attempts(), 10));
+            ps.setTimestamp(1, Timestamp.valueOf(now.plusSeconds(delay)));
+            ps.setString(2, lastError);
+            ps.setLong(3, row.id());
+        });
+        failed.increment(rows.size());
+    }
+
+    private record Row(long id, String eventType, String payload, int attempts) {
+    }
+}
@@ -0,0 +1,15 @@
+package Support.Outbox;
+
+import java.util.List;
+
+/**
+ * Subscriber trong process nhận event từ OutboxRelay theo lô (cùng kiểu, theo thứ tự ghi).
+ * Giao ít nhất một lần: onEvents có thể được gọi lại với event đã xử lý nên phải idempotent.
+ * Ném exception thì cả lô được giao lại sau.
+ */
+public interface OutboxSubscriber<E> {
+
+    Class<E> eventType();
+
+    void onEvents(List<E> events);
+}
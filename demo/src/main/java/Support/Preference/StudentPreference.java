@@ -0,0 +1,95 @@
+package Support.Preference;
+
+import Support.Index.GradeMask;
+import Support.Index.TutorMatchIndex;
+import lombok.Getter;
+
+import java.util.BitSet;
+
+/**
+ * Vector sở thích đã tính sẵn của một học viên:
+ * - subject: preferredSubject (trọng số 1) cộng tỉ lệ booking theo từng môn, thưa theo Subject.denseId
+ * - grade: GradeMask của StudentProfile.gradeLevel
+ * - gia sư đã từng học (booking CONFIRMED/TRIAL/COMPLETED)
+ * Bất biến; dùng chung giữa các request qua StudentPreferenceCache.
+ */
+public final class StudentPreference {
+
+    static final double SUBJECT_BONUS = 6;
+    static final double GRADE_BONUS = 3;
+    static final double PAST_TUTOR_BONUS = 4;
+
+    @Getter
+    private final String studentId;
+    // Môn ưu tiên nhất, dùng khi request không có subjectId
+    @Getter
+    private final String primarySubjectId;
+    @Getter
+    private final String gradeLevel;
+    private final long gradeMask;
+    private final int[] subjectIds;
+    private final double[] subjectWeights;
+    private final double totalWeight;
+    private final String[] pastTutorIds;
+
+    StudentPreference(String studentId, String primarySubjectId, String gradeLevel,
+                      int[] subjectIds, double[] subjectWeights, String[] pastTutorIds) {
+        this.studentId = studentId;
+        this.primarySubjectId = primarySubjectId;
+        this.gradeLevel = gradeLevel;
+        this.gradeMask = GradeMask.parse(gradeLevel);
+        this.subjectIds = subjectIds;
+        this.subjectWeights = subjectWeights;
+        double total = 0;
+        for (double weight : subjectWeights) total += weight;
+        this.totalWeight = total;
+        this.pastTutorIds = pastTutorIds;
+    }
+
+    /**
+     * Gắn preference vào slot hiện tại của index (gia sư đã học -> BitSet slot).
+     * Gọi trong read lock của index; Scorer chỉ dùng trong cùng lần đọc đó.
+     */
+    public Scorer scorer(TutorMatchIndex index) {
+        BitSet pastSlots = new BitSet();
+        for (String tutorId : pastTutorIds) {
+            int slot = index.slotOf(tutorId);
+            if (slot >= 0) pastSlots.set(slot);
+        }
+        return new Scorer(index, pastSlots);
+    }
+
+    public final class Scorer {
+        private final TutorMatchIndex index;
+        private final BitSet pastSlots;
+        private final double maxBonus;
+
+        private Scorer(TutorMatchIndex index, BitSet pastSlots) {
+            this.index = index;
+            this.pastSlots = pastSlots;
+            this.maxBonus = (totalWeight > 0 ? SUBJECT_BONUS : 0)
+                    + (gradeMask != 0 ? GRADE_BONUS : 0)
+                    + (pastSlots.isEmpty() ? 0 : PAST_TUTOR_BONUS);
+        }
+
+        // Điểm cộng theo sở thích, trong [0, maxBonus]
+        public double bonus(int slot) {
+            double bonus = 0;
+            if (totalWeight > 0) {
+                // Tích vô hướng giữa vector môn của học viên và tập môn gia sư dạy, chuẩn hóa về [0, 1]
+                double matched = 0;
+                for (int i = 0; i < subjectIds.length; i++) {
+                    if (index.hasSubject(slot, subjectIds[i])) matched += subjectWeights[i];
+                }
+                bonus += SUBJECT_BONUS * matched / totalWeight;
+            }
+            if (gradeMask != 0 && index.matchesGrade(slot, gradeMask)) bonus += GRADE_BONUS;
+            if (pastSlots.get(slot)) bonus += PAST_TUTOR_BONUS;
+            return bonus;
+        }
+
+        public double maxBonus() {
+            return maxBonus;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package Support.Preference;
+
+import Booking.Entity.BookingStatus;
+import Booking.Repository.BookingRepository;
+import Support.Index.TutorMatchIndex;
+import User.Repository.StudentProfileRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Cache StudentPreference theo studentId.
+ * Nạp theo lô: 3 truy vấn (gradeLevel, preferredSubject, booking gộp theo môn/gia sư) cho cả nhóm học viên,
+ * nên batch recommendations không phải load từng StudentProfile + bookings.
+ * Bị xóa khi hồ sơ/booking của học viên thay đổi; TTL chỉ là lưới an toàn.
+ */
+@Component
+public class StudentPreferenceCache {
+
+    // Booking được coi là "đã học"
+    private static final List<BookingStatus> TAKEN_STATUSES =
+            List.of(BookingStatus.CONFIRMED, BookingStatus.TRIAL, BookingStatus.COMPLETED);
+
+    private final StudentProfileRepository studentRepository;
+    private final BookingRepository bookingRepository;
+    private final TutorMatchIndex tutorMatchIndex;
+    private final Cache<String, StudentPreference> cache;
+
+    public StudentPreferenceCache(StudentProfileRepository studentRepository,
+                                  BookingRepository bookingRepository,
+                                  TutorMatchIndex tutorMatchIndex,
+                                  @Value("${matching.preference.cache-size:100000}") long maximumSize,
+                                  @Value("${matching.preference.ttl-minutes:30}") long ttlMinutes) {
+        this.studentRepository = studentRepository;
+        this.bookingRepository = bookingRepository;
+        this.tutorMatchIndex = tutorMatchIndex;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    // null nếu không có StudentProfile
+    public StudentPreference get(String studentId) {
+        return getAll(List.of(studentId)).get(studentId);
+    }
+
+    // Học viên không có StudentProfile không có trong map kết quả
+    public Map<String, StudentPreference> getAll(Collection<String> studentIds) {
+        return cache.getAll(studentIds, this::loadAll);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStudentPreferenceChanged(StudentPreferenceChangedEvent event) {
+        cache.invalidate(event.studentId());
+    }
+
+    private Map<String, StudentPreference> loadAll(Set<? extends String> keys) {
+        List<String> studentIds = new ArrayList<>(keys);
+        Map<String, String> gradeLevels = new HashMap<>();
+        for (Object[] row : studentRepository.findGradeLevels(studentIds)) {
+            gradeLevels.put((String) row[0], (String) row[1]);
+        }
+        if (gradeLevels.isEmpty()) return Map.of();
+
+        // studentId -> subjectId -> trọng số; preferredSubject đứng trước để thắng khi bằng trọng số
+        Map<String, Map<String, Double>> weights = new HashMap<>();
+        for (Object[] row : studentRepository.findPreferredSubjects(studentIds)) {
+            weights.computeIfAbsent((String) row[0], k -> new LinkedHashMap<>()).merge((String) row[1], 1.0, Double::sum);
+        }
+
+        Map<String, Map<String, Long>> bookedSubjects = new HashMap<>();
+        Map<String, Set<String>> pastTutors = new HashMap<>();
+        Map<String, Long> bookingTotals = new HashMap<>();
+        for (Object[] row : bookingRepository.countTakenBookingsByStudentIds(studentIds, TAKEN_STATUSES)) {
+            String studentId = (String) row[0];
+            long count = ((Number) row[3]).longValue();
+            if (row[1] != null) {
+                bookedSubjects.computeIfAbsent(studentId, k -> new HashMap<>()).merge((String) row[1], count, Long::sum);
+            }
+            pastTutors.computeIfAbsent(studentId, k -> new HashSet<>()).add((String) row[2]);
+            bookingTotals.merge(studentId, count, Long::sum);
+        }
+        // Booking cộng theo tỉ lệ: tổng phần booking của một học viên bằng 1
+        bookedSubjects.forEach((studentId, counts) -> {
+            double total = bookingTotals.get(studentId);
+            Map<String, Double> studentWeights = weights.computeIfAbsent(studentId, k -> new LinkedHashMap<>());
+            counts.forEach((subjectId, count) -> studentWeights.merge(subjectId, count / total, Double::sum));
+        });
+
+        Map<String, StudentPreference> result = new HashMap<>();
+        for (Map.Entry<String, String> entry : gradeLevels.entrySet()) {
+            String studentId = entry.getKey();
+            result.put(studentId, build(studentId, entry.getValue(),
+                    weights.getOrDefault(studentId, Map.of()),
+                    pastTutors.getOrDefault(studentId, Set.of())));
+        }
+        return result;
+    }
+
+    private StudentPreference build(String studentId, String gradeLevel,
+                                    Map<String, Double> subjectWeights, Set<String> pastTutorIds) {
+        String primarySubjectId = null;
+        double best = 0;
+        int[] subjectIds = new int[subjectWeights.size()];
+        double[] weights = new double[subjectWeights.size()];
+        int n = 0;
+        for (Map.Entry<String, Double> entry : subjectWeights.entrySet()) {
+            if (entry.getValue() > best) {
+                best = entry.getValue();
+                primarySubjectId = entry.getKey();
+            }
+            // Môn chưa có denseId (chưa có lớp nào) thì không gia sư nào khớp, bỏ khỏi vector
+            int denseId = tutorMatchIndex.subjectDenseId(entry.getKey());
+            if (denseId < 0) continue;
+            subjectIds[n] = denseId;
+            weights[n++] = entry.getValue();
+        }
+        return new StudentPreference(studentId, primarySubjectId, gradeLevel,
+                Arrays.copyOf(subjectIds, n), Arrays.copyOf(weights, n), pastTutorIds.toArray(new String[0]));
+    }
+}
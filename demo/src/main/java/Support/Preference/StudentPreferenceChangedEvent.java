@@ -0,0 +1,8 @@
+package Support.Preference;
+
+/**
+ * Phát ra khi hồ sơ học viên hoặc booking của học viên thay đổi,
+ * để StudentPreferenceCache tính lại vector sở thích sau khi transaction commit.
+ */
+public record StudentPreferenceChangedEvent(String studentId) {
+}
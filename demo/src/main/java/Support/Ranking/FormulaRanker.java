@@ -0,0 +1,78 @@
+package Support.Ranking;
+
+import Support.Dto.Response.ScoreBreakdownResponse;
+import Support.Index.MatchQuery;
+import Support.Index.TutorMatchIndex;
+
+/**
+ * Công thức gốc (Ported from TS), ranker mặc định:
+ * score = trustScore * 0.5 + averageRating * 10 + completedBookings * 2
+ *       + (subjectMatch ? 6 : 0) + (gradeMatch ? 4 : 0) + 8 * overlap / desired
+ *       + 10 * max(0, 1 - distance / scale) - pricePenalty
+ */
+public final class FormulaRanker implements Ranker {
+
+    public static final String VERSION = "formula";
+
+    static final double TRUST_WEIGHT = 0.5;
+    static final double RATING_WEIGHT = 10;
+    static final double BOOKING_WEIGHT = 2;
+    static final double SUBJECT_BONUS = 6;
+    static final double GRADE_BONUS = 4;
+    // Nhân với tỉ lệ desiredSlots mà gia sư rảnh
+    static final double AVAILABILITY_BONUS = 8;
+    // Giảm tuyến tính từ 10 (cùng chỗ) về 0 ở distanceScaleKm
+    static final double DISTANCE_BONUS = 10;
+
+    @Override
+    public String version() {
+        return VERSION;
+    }
+
+    @Override
+    public double baseScore(TutorMatchIndex index, int slot) {
+        return (index.trustScore(slot) * TRUST_WEIGHT) +
+                (index.averageRating(slot) * RATING_WEIGHT) +
+                (index.completedBookings(slot) * BOOKING_WEIGHT);
+    }
+
+    @Override
+    public double matchBonus(TutorMatchIndex index, int slot, MatchQuery query) {
+        return RankingFeatures.subject(index, slot, query) * SUBJECT_BONUS +
+                RankingFeatures.grade(index, slot, query) * GRADE_BONUS +
+                RankingFeatures.availability(index, slot, query) * AVAILABILITY_BONUS +
+                RankingFeatures.proximity(index, slot, query) * DISTANCE_BONUS -
+                RankingFeatures.pricePenalty(index, slot, query);
+    }
+
+    @Override
+    public double maxBonus(MatchQuery query) {
+        return (query.getSubjectId() >= 0 ? SUBJECT_BONUS : 0) +
+                (query.getGradeMask() != 0 ? GRADE_BONUS : 0) +
+                (query.getDesiredSlots() != null ? AVAILABILITY_BONUS : 0) +
+                (query.isDistanceScored() ? DISTANCE_BONUS : 0);
+    }
+
+    @Override
+    public ScoreBreakdownResponse explain(TutorMatchIndex index, int slot, MatchQuery query) {
+        double trust = index.trustScore(slot) * TRUST_WEIGHT;
+        double rating = index.averageRating(slot) * RATING_WEIGHT;
+        double bookings = index.completedBookings(slot) * BOOKING_WEIGHT;
+        double subject = RankingFeatures.subject(index, slot, query) * SUBJECT_BONUS;
+        double grade = RankingFeatures.grade(index, slot, query) * GRADE_BONUS;
+        double availability = RankingFeatures.availability(index, slot, query) * AVAILABILITY_BONUS;
+        double distance = RankingFeatures.proximity(index, slot, query) * DISTANCE_BONUS;
+        double pricePenalty = RankingFeatures.pricePenalty(index, slot, query);
+        return ScoreBreakdownResponse.builder()
+                .trust(trust)
+                .rating(rating)
+                .bookings(bookings)
+                .subject(subject)
+                .grade(grade)
+                .availability(availability)
+                .distance(distance)
+                .pricePenalty(pricePenalty)
+                .total(trust + rating + bookings + subject + grade + availability + distance - pricePenalty)
+                .build();
+    }
+}
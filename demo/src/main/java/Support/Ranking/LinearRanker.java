@@ -0,0 +1,153 @@
+package Support.Ranking;
+
+import Support.Dto.Response.ScoreBreakdownResponse;
+import Support.Index.MatchQuery;
+import Support.Index.TutorMatchIndex;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Mô hình tuyến tính trên cùng các đặc trưng với FormulaRanker, trọng số đọc từ file properties:
+ * <pre>
+ * version=2024-06-01
+ * bias=0
+ * trust=0.5
+ * rating=10
+ * bookings=2
+ * subject=6
+ * grade=4
+ * availability=8
+ * distance=10
+ * price-penalty=1
+ * </pre>
+ * version là bắt buộc; trọng số thiếu lấy theo FormulaRanker. Trọng số của subject/grade/availability/distance
+ * được phép âm; price-penalty phải >= 0 để maxBonus vẫn là cận trên.
+ */
+public final class LinearRanker implements Ranker {
+
+    private final String version;
+    private final double bias;
+    private final double trust;
+    private final double rating;
+    private final double bookings;
+    private final double subject;
+    private final double grade;
+    private final double availability;
+    private final double distance;
+    private final double pricePenalty;
+
+    LinearRanker(String version, double bias, double trust, double rating, double bookings, double subject,
+                 double grade, double availability, double distance, double pricePenalty) {
+        this.version = "linear:" + version;
+        this.bias = bias;
+        this.trust = trust;
+        this.rating = rating;
+        this.bookings = bookings;
+        this.subject = subject;
+        this.grade = grade;
+        this.availability = availability;
+        this.distance = distance;
+        this.pricePenalty = pricePenalty;
+    }
+
+    public static LinearRanker load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        String version = properties.getProperty("version");
+        if (version == null || version.isBlank()) {
+            throw new RuntimeException("Ranker weights file has no version: " + file);
+        }
+        double pricePenalty = weight(properties, "price-penalty", 1);
+        if (pricePenalty < 0) {
+            throw new RuntimeException("price-penalty weight must not be negative");
+        }
+        return new LinearRanker(version.trim(),
+                weight(properties, "bias", 0),
+                weight(properties, "trust", FormulaRanker.TRUST_WEIGHT),
+                weight(properties, "rating", FormulaRanker.RATING_WEIGHT),
+                weight(properties, "bookings", FormulaRanker.BOOKING_WEIGHT),
+                weight(properties, "subject", FormulaRanker.SUBJECT_BONUS),
+                weight(properties, "grade", FormulaRanker.GRADE_BONUS),
+                weight(properties, "availability", FormulaRanker.AVAILABILITY_BONUS),
+                weight(properties, "distance", FormulaRanker.DISTANCE_BONUS),
+                pricePenalty);
+    }
+
+    private static double weight(Properties properties, String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) return defaultValue;
+        double weight;
+        try {
+            weight = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid weight for " + key + ": " + value);
+        }
+        if (!Double.isFinite(weight)) {
+            throw new RuntimeException("Invalid weight for " + key + ": " + value);
+        }
+        return weight;
+    }
+
+    @Override
+    public String version() {
+        return version;
+    }
+
+    @Override
+    public double baseScore(TutorMatchIndex index, int slot) {
+        return bias +
+                index.trustScore(slot) * trust +
+                index.averageRating(slot) * rating +
+                index.completedBookings(slot) * bookings;
+    }
+
+    @Override
+    public double matchBonus(TutorMatchIndex index, int slot, MatchQuery query) {
+        return RankingFeatures.subject(index, slot, query) * subject +
+                RankingFeatures.grade(index, slot, query) * grade +
+                RankingFeatures.availability(index, slot, query) * availability +
+                RankingFeatures.proximity(index, slot, query) * distance -
+                RankingFeatures.pricePenalty(index, slot, query) * pricePenalty;
+    }
+
+    @Override
+    public double maxBonus(MatchQuery query) {
+        // Đặc trưng nằm trong [0, 1] nên mỗi số hạng đóng góp tối đa max(w, 0)
+        return (query.getSubjectId() >= 0 ? Math.max(subject, 0) : 0) +
+                (query.getGradeMask() != 0 ? Math.max(grade, 0) : 0) +
+                (query.getDesiredSlots() != null ? Math.max(availability, 0) : 0) +
+                (query.isDistanceScored() ? Math.max(distance, 0) : 0);
+    }
+
+    @Override
+    public ScoreBreakdownResponse explain(TutorMatchIndex index, int slot, MatchQuery query) {
+        // bias được gộp vào trust để total vẫn bằng tổng các thành phần
+        double trustPart = bias + index.trustScore(slot) * trust;
+        double ratingPart = index.averageRating(slot) * rating;
+        double bookingsPart = index.completedBookings(slot) * bookings;
+        double subjectPart = RankingFeatures.subject(index, slot, query) * subject;
+        double gradePart = RankingFeatures.grade(index, slot, query) * grade;
+        double availabilityPart = RankingFeatures.availability(index, slot, query) * availability;
+        double distancePart = RankingFeatures.proximity(index, slot, query) * distance;
+        double penaltyPart = RankingFeatures.pricePenalty(index, slot, query) * pricePenalty;
+        return ScoreBreakdownResponse.builder()
+                .trust(trustPart)
+                .rating(ratingPart)
+                .bookings(bookingsPart)
+                .subject(subjectPart)
+                .grade(gradePart)
+                .availability(availabilityPart)
+                .distance(distancePart)
+                .pricePenalty(penaltyPart)
+                .total(trustPart + ratingPart + bookingsPart + subjectPart + gradePart
+                        + availabilityPart + distancePart - penaltyPart)
+                .build();
+    }
+}
@@ -0,0 +1,28 @@
+package Support.Ranking;
+
+import Support.Dto.Response.ScoreBreakdownResponse;
+import Support.Index.MatchQuery;
+import Support.Index.TutorMatchIndex;
+
+/**
+ * Công thức chấm điểm gia sư cho matching: score = baseScore + matchBonus.
+ * Được gọi trong vòng lặp chấm điểm (read lock của index) cho từng ứng viên nên
+ * implementation phải bất biến, thread-safe và không cấp phát object trong baseScore/matchBonus.
+ */
+public interface Ranker {
+
+    // Định danh ghi vào khóa cache và explain, VD: "formula", "linear:2024-06-01"
+    String version();
+
+    // Phần điểm không phụ thuộc bộ lọc
+    double baseScore(TutorMatchIndex index, int slot);
+
+    // Phần điểm phụ thuộc bộ lọc, luôn <= maxBonus(query)
+    double matchBonus(TutorMatchIndex index, int slot, MatchQuery query);
+
+    // Cận trên của matchBonus cho query này, dùng để cắt sớm khi chọn top K
+    double maxBonus(MatchQuery query);
+
+    // Tách điểm thành từng thành phần cho explain (không nằm trên hot path)
+    ScoreBreakdownResponse explain(TutorMatchIndex index, int slot, MatchQuery query);
+}
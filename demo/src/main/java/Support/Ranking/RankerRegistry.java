@@ -0,0 +1,77 @@
+package Support.Ranking;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Chọn Ranker cho từng request.
+ * LinearRanker được nạp từ matching.ranker.weights-file và nạp lại khi file đổi (theo lastModified),
+ * rồi thay nguyên object qua AtomicReference: request đang chạy giữ ranker cũ tới hết, không cần restart.
+ * File lỗi thì giữ nguyên model đang chạy.
+ * A/B: linear-percent % học viên (theo hash studentId, cố định giữa các request) dùng LinearRanker,
+ * còn lại và request không có studentId dùng FormulaRanker.
+ */
+@Component
+@Slf4j
+public class RankerRegistry {
+
+    private static final int BUCKETS = 100;
+
+    private final Ranker formulaRanker = new FormulaRanker();
+    private final AtomicReference<LinearRanker> linearRanker = new AtomicReference<>();
+
+    private final Path weightsFile;
+    private final int linearPercent;
+    private FileTime loadedAt;
+
+    public RankerRegistry(@Value("${matching.ranker.weights-file:}") String weightsFile,
+                          @Value("${matching.ranker.linear-percent:0}") int linearPercent) {
+        this.weightsFile = weightsFile == null || weightsFile.isBlank() ? null : Path.of(weightsFile);
+        this.linearPercent = Math.max(0, Math.min(BUCKETS, linearPercent));
+        reloadIfChanged();
+    }
+
+    public Ranker rankerFor(String studentId) {
+        LinearRanker linear = linearRanker.get();
+        if (linear == null || linearPercent == 0) return formulaRanker;
+        if (linearPercent == BUCKETS) return linear;
+        if (studentId == null || studentId.isBlank()) return formulaRanker;
+        return bucket(studentId) < linearPercent ? linear : formulaRanker;
+    }
+
+    @Scheduled(initialDelayString = "${matching.ranker.reload-interval-ms:10000}",
+            fixedDelayString = "${matching.ranker.reload-interval-ms:10000}")
+    public synchronized void reloadIfChanged() {
+        if (weightsFile == null) return;
+        try {
+            if (!Files.exists(weightsFile)) {
+                if (loadedAt == null) log.warn("Ranker weights file {} not found", weightsFile);
+                return;
+            }
+            FileTime modified = Files.getLastModifiedTime(weightsFile);
+            if (modified.equals(loadedAt)) return;
+            // Ghi nhận trước khi parse: file lỗi chỉ báo một lần, sửa file thì lần sau nạp lại
+            loadedAt = modified;
+            LinearRanker ranker = LinearRanker.load(weightsFile);
+            LinearRanker previous = linearRanker.getAndSet(ranker);
+            log.info("Loaded ranker {} (previous: {})", ranker.version(),
+                    previous != null ? previous.version() : "none");
+        } catch (IOException | RuntimeException e) {
+            log.error("Cannot load ranker weights from {}", weightsFile, e);
+        }
+    }
+
+    // Hash ổn định giữa các JVM (String.hashCode cố định theo spec), trộn bit để chia đều 100 bucket
+    static int bucket(String studentId) {
+        int h = studentId.hashCode() * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), BUCKETS);
+    }
+}
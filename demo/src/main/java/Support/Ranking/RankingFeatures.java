@@ -0,0 +1,45 @@
+package Support.Ranking;
+
+import Support.Index.MatchQuery;
+import Support.Index.TutorMatchIndex;
+
+/**
+ * Các đặc trưng phụ thuộc bộ lọc dùng chung cho mọi Ranker, đều chuẩn hóa về [0, 1]
+ * (trừ pricePenalty, đơn vị là tiền và >= 0).
+ */
+final class RankingFeatures {
+
+    private RankingFeatures() {
+    }
+
+    // Subject chỉ tính lớp PUBLISHED (bitmask đã chuẩn hóa trong index)
+    static double subject(TutorMatchIndex index, int slot, MatchQuery query) {
+        return query.getSubjectId() >= 0 && index.hasSubject(slot, query.getSubjectId()) ? 1 : 0;
+    }
+
+    // Grade tính mọi lớp
+    static double grade(TutorMatchIndex index, int slot, MatchQuery query) {
+        return query.getGradeMask() != 0 && index.matchesGrade(slot, query.getGradeMask()) ? 1 : 0;
+    }
+
+    // Tỉ lệ ô 15 phút học viên mong muốn mà gia sư rảnh
+    static double availability(TutorMatchIndex index, int slot, MatchQuery query) {
+        return query.getDesiredSlots() != null
+                ? (double) index.availabilityOverlap(slot, query.getDesiredSlots()) / query.getDesiredSlotCount()
+                : 0;
+    }
+
+    // 1 tại vị trí học viên, giảm tuyến tính về 0 ở distanceScaleKm; gia sư chưa có tọa độ = 0
+    static double proximity(TutorMatchIndex index, int slot, MatchQuery query) {
+        if (!query.isDistanceScored()) return 0;
+        double distance = index.distanceKm(slot, query.getOriginLatitude(), query.getOriginLongitude());
+        if (Double.isNaN(distance)) return 0;
+        return Math.max(0, 1 - distance / query.getDistanceScaleKm());
+    }
+
+    static double pricePenalty(TutorMatchIndex index, int slot, MatchQuery query) {
+        return query.isPriceFiltered()
+                ? index.pricePenalty(slot, query.getPriceMin(), query.getPriceMax())
+                : 0;
+    }
+}
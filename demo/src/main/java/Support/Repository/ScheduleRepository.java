@@ -1,10 +1,44 @@
 package Support.Repository;
 
+import Booking.Entity.BookingStatus;
 import Support.Entity.Schedule;
+import Support.Entity.ScheduleStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface ScheduleRepository extends JpaRepository<Schedule, String> {
     void deleteByBookingId(String bookingId);
+
+    // Xóa lịch chưa diễn ra của mọi booking trong lớp bằng một câu DELETE
+    @Modifying
+    @Query("DELETE FROM Schedule s WHERE s.startTime > :now " +
+            "AND s.bookingId IN (SELECT b.id FROM Booking b WHERE b.classId = :classId)")
+    int deleteFutureByClassId(@Param("classId") String classId, @Param("now") LocalDateTime now);
+
+    // [startTime, endTime, classId] các buổi chưa kết thúc của gia sư (TutorScheduleIndex)
+    @Query("SELECT s.startTime, s.endTime, b.classId FROM Schedule s, Booking b " +
+            "WHERE s.bookingId = b.id AND s.tutorId = :tutorId AND s.status = :status AND s.endTime > :now")
+    List<Object[]> findBusyRangesByTutor(@Param("tutorId") String tutorId,
+                                         @Param("status") ScheduleStatus status,
+                                         @Param("now") LocalDateTime now);
+
+    // [bookingId, tutorId, studentId, MAX(startTime)] của các booking đang học mà lịch sắp hết trước :until,
+    // duyệt theo bookingId (keyset) cho ScheduleMaterializer
+    @Query("SELECT b.id, b.tutorId, b.studentId, MAX(s.startTime) FROM Booking b, Schedule s " +
+            "WHERE s.bookingId = b.id AND b.status = :status AND b.id > :afterId " +
+            "GROUP BY b.id, b.tutorId, b.studentId " +
+            "HAVING MAX(s.startTime) < :until " +
+            "ORDER BY b.id")
+    List<Object[]> findBookingsToExtend(@Param("status") BookingStatus status,
+                                        @Param("until") LocalDateTime until,
+                                        @Param("afterId") String afterId,
+                                        Pageable pageable);
 }
@@ -0,0 +1,230 @@
+package Support.Service;
+
+import Support.Entity.IdempotencyRecord;
+import Support.Repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Chống tạo trùng khi client gửi lại request với cùng Idempotency-Key (double-tap, retry khi timeout).
+ * - Tầng 1: Caffeine (giới hạn kích thước + TTL) giữ kết quả đã hoàn tất, trả lại không cần transaction.
+ * - Request trùng đang chạy trên cùng node chờ CompletableFuture của request đầu tiên thay vì chạy lại.
+ * - Tầng 2: bảng idempotency_keys cho nhiều node: request đầu tiên INSERT để "giữ chỗ" key, node khác
+ *   gặp key đang xử lý thì báo lỗi để client thử lại, gặp key đã xong thì trả kết quả đã lưu.
+ * Kết quả được ghi trong cùng transaction với action, nên node chết sau commit vẫn để lại kết quả cho lần gửi lại.
+ * Cùng key nhưng body khác bị từ chối.
+ */
+@Component
+@Slf4j
+public class IdempotencyStore {
+
+    private static final String CLAIM_SQL = "INSERT INTO idempotency_keys " +
+            "(id, request_hash, claim_token, created_at, expires_at) VALUES (?, ?, ?, ?, ?)";
+    // Chỉ ghi kết quả khi key vẫn thuộc lần giữ chỗ này (chưa bị node khác thu hồi)
+    private static final String COMPLETE_SQL = "UPDATE idempotency_keys SET response = ? " +
+            "WHERE id = ? AND claim_token = ? AND response IS NULL";
+    private static final String RELEASE_SQL = "DELETE FROM idempotency_keys " +
+            "WHERE id = ? AND claim_token = ? AND response IS NULL";
+    // Thu hồi đúng dòng đã quan sát: hai node cùng thấy claim cũ thì chỉ một DELETE xóa được
+    private static final String RECLAIM_SQL = "DELETE FROM idempotency_keys WHERE id = ? AND claim_token = ? " +
+            "AND (expires_at < ? OR (response IS NULL AND created_at < ?))";
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final long waitMs;
+    private final Duration claimTimeout;
+
+    private final Cache<String, Completed> completed;
+    private final Map<String, CompletableFuture<Completed>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyStore(IdempotencyRecordRepository recordRepository,
+                            JdbcTemplate jdbcTemplate,
+                            TransactionTemplate transactionTemplate,
+                            ObjectMapper objectMapper,
+                            @Value("${idempotency.cache-size:100000}") long maximumSize,
+                            @Value("${idempotency.ttl-hours:24}") long ttlHours,
+                            @Value("${idempotency.wait-ms:10000}") long waitMs,
+                            @Value("${idempotency.claim-timeout-seconds:60}") long claimTimeoutSeconds) {
+        this.recordRepository = recordRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.waitMs = waitMs;
+        this.claimTimeout = Duration.ofSeconds(claimTimeoutSeconds);
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Chạy action đúng một lần cho (scope, userId, key); các lần gọi lại trả về kết quả của lần đầu.
+     * action chạy trong transaction do store mở (action @Transactional sẽ tham gia) cùng với câu ghi kết quả;
+     * store không giữ transaction nào trong lúc chờ.
+     */
+    public <T> T execute(String scope, String userId, String key, Object request, Class<T> type, Supplier<T> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException("Invalid Idempotency-Key");
+        }
+        String id = sha256(scope + "\n" + userId + "\n" + key);
+        String requestHash = sha256(toJson(request));
+
+        Completed cached = completed.getIfPresent(id);
+        if (cached != null) return read(cached, requestHash, type);
+
+        CompletableFuture<Completed> mine = new CompletableFuture<>();
+        CompletableFuture<Completed> running = inFlight.putIfAbsent(id, mine);
+        if (running != null) {
+            // Request trùng trên cùng node: chờ request đầu tiên
+            return read(await(running), requestHash, type);
+        }
+
+        try {
+            String claimToken = UUID.randomUUID().toString();
+            Completed result = claimOrLoad(id, requestHash, claimToken);
+            if (result == null) result = runClaimed(id, requestHash, claimToken, action);
+            completed.put(id, result);
+            mine.complete(result);
+            return read(result, requestHash, type);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, mine);
+        }
+    }
+
+    // null = đã giữ chỗ key (với claimToken), người gọi phải chạy action
+    private Completed claimOrLoad(String id, String requestHash, String claimToken) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord existing = recordRepository.findById(id).orElse(null);
+        // Hết hạn, hoặc giữ chỗ quá lâu mà chưa có kết quả (node giữ chỗ đã chết)
+        if (existing != null && (existing.getExpiresAt().isBefore(now)
+                || existing.getResponse() == null && existing.getCreatedAt().plus(claimTimeout).isBefore(now))) {
+            int deleted = jdbcTemplate.update(RECLAIM_SQL, id, existing.getClaimToken(),
+                    Timestamp.valueOf(now), Timestamp.valueOf(now.minus(claimTimeout)));
+            // 0 dòng: node khác đã thu hồi trước (và có thể đã giữ chỗ lại), đọc lại trạng thái hiện tại
+            existing = deleted == 1 ? null : recordRepository.findById(id).orElse(null);
+        }
+        if (existing == null) {
+            try {
+                jdbcTemplate.update(CLAIM_SQL, id, requestHash, claimToken,
+                        Timestamp.valueOf(now), Timestamp.valueOf(now.plus(ttl)));
+                return null;
+            } catch (DuplicateKeyException e) {
+                // Node khác vừa giữ chỗ cùng key
+                existing = recordRepository.findById(id).orElseThrow(() -> e);
+            }
+        }
+        if (existing.getResponse() == null) {
+            throw new RuntimeException("Request with this Idempotency-Key is still being processed");
+        }
+        return new Completed(existing.getRequestHash(), existing.getResponse());
+    }
+
+    private <T> Completed runClaimed(String id, String requestHash, String claimToken, Supplier<T> action) {
+        try {
+            return Objects.requireNonNull(transactionTemplate.execute(status -> {
+                Completed result = new Completed(requestHash, toJson(action.get()));
+                // Ghi kết quả cùng transaction với action: commit là có cả booking lẫn kết quả, hoặc không có gì
+                if (jdbcTemplate.update(COMPLETE_SQL, result.response(), id, claimToken) != 1) {
+                    // Giữ chỗ đã bị thu hồi (action chạy quá claim-timeout) và node khác đang chạy lại: hủy lần này
+                    throw new RuntimeException("Request with this Idempotency-Key is still being processed");
+                }
+                return result;
+            }));
+        } catch (RuntimeException e) {
+            // Action lỗi thì nhả key để client có thể thử lại
+            jdbcTemplate.update(RELEASE_SQL, id, claimToken);
+            throw e;
+        }
+    }
+
+    private Completed await(CompletableFuture<Completed> running) {
+        try {
+            return running.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Request with this Idempotency-Key is still being processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the original request");
+        }
+    }
+
+    private <T> T read(Completed result, String requestHash, Class<T> type) {
+        if (!result.requestHash().equals(requestHash)) {
+            throw new RuntimeException("Idempotency-Key was already used with a different request");
+        }
+        try {
+            return objectMapper.readValue(result.response(), type);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("JSON Error", e);
+        }
+    }
+
+    @Scheduled(cron = "${idempotency.cleanup-cron:0 15 * * * *}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = recordRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("JSON Error", e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Response lưu dạng JSON để tầng Caffeine và tầng DB trả về cùng một kết quả
+    private record Completed(String requestHash, String response) {
+    }
+}
@@ -0,0 +1,44 @@
+package Support.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thời gian từng bước (ns) và số ứng viên của một request matching.
+ * Luôn được ghi vào MatchingMetrics; với explain=true thì trả thêm về cho client.
+ */
+class MatchTrace {
+
+    enum Stage {
+        CANDIDATES("candidates"),
+        SCORING("scoring"),
+        SORT("sort"),
+        MAP("map");
+
+        final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    final String operation;
+    final long[] nanos = new long[Stage.values().length];
+    int candidateCount;
+
+    MatchTrace(String operation) {
+        this.operation = operation;
+    }
+
+    void stage(Stage stage, long startNanos) {
+        nanos[stage.ordinal()] += System.nanoTime() - startNanos;
+    }
+
+    Map<String, Double> timingsMs() {
+        Map<String, Double> timings = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            timings.put(stage.tag, nanos[stage.ordinal()] / 1_000_000.0);
+        }
+        return timings;
+    }
+}
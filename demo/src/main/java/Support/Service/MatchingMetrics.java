@@ -0,0 +1,62 @@
+package Support.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meter cho từng bước matching, tag theo operation (search, match, semantic, page, batch):
+ * - matching.stage.duration{stage}: candidates, scoring, sort, map
+ * - matching.candidates: số ứng viên sau hard filter
+ * - matching.requests: số request
+ * Meter được tạo một lần cho mỗi operation rồi dùng lại.
+ */
+@Component
+public class MatchingMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public MatchingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    void record(MatchTrace trace) {
+        Meters m = meters.computeIfAbsent(trace.operation, this::register);
+        for (MatchTrace.Stage stage : MatchTrace.Stage.values()) {
+            m.stages[stage.ordinal()].record(trace.nanos[stage.ordinal()], TimeUnit.NANOSECONDS);
+        }
+        m.candidates.record(trace.candidateCount);
+        m.requests.increment();
+    }
+
+    private Meters register(String operation) {
+        MatchTrace.Stage[] stages = MatchTrace.Stage.values();
+        Timer[] timers = new Timer[stages.length];
+        for (MatchTrace.Stage stage : stages) {
+            timers[stage.ordinal()] = Timer.builder("matching.stage.duration")
+                    .description("Time spent in each matching stage")
+                    .tag("operation", operation)
+                    .tag("stage", stage.tag)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(registry);
+        }
+        DistributionSummary candidates = DistributionSummary.builder("matching.candidates")
+                .description("Candidates left after hard filters")
+                .tag("operation", operation)
+                .register(registry);
+        Counter requests = Counter.builder("matching.requests")
+                .tag("operation", operation)
+                .register(registry);
+        return new Meters(timers, candidates, requests);
+    }
+
+    private record Meters(Timer[] stages, DistributionSummary candidates, Counter requests) {
+    }
+}
@@ -1,7 +1,12 @@
 package Support.Service;
 
+import Support.Dto.Request.BatchRecommendationRequest;
 import Support.Dto.Request.MatchingRequest;
 import Support.Dto.Request.TutorFilterRequest;
+import Support.Dto.Response.MatchCacheStatsResponse;
+import Support.Dto.Response.MatchExplainResponse;
+import Support.Dto.Response.StudentRecommendationResponse;
+import Support.Dto.Response.TutorMatchPageResponse;
 import Support.Dto.Response.TutorMatchResponse;
 
 import java.util.List;
@@ -10,6 +15,21 @@ public interface MatchingService {
     // Legacy Filter (GET /tutors)
     List<TutorMatchResponse> searchTutors(TutorFilterRequest request);
 
+    // Như searchTutors nhưng kèm điểm thành phần và thời gian từng bước (không qua cache)
+    MatchExplainResponse explainSearchTutors(TutorFilterRequest request);
+
+    // Legacy Filter có phân trang (GET /tutors/page), cursor null = trang đầu
+    TutorMatchPageResponse searchTutorsPage(TutorFilterRequest request, String cursor, int size);
+
     // Advanced Matching (POST /tutors)
     List<TutorMatchResponse> matchTutors(MatchingRequest request);
+
+    // Như matchTutors nhưng kèm điểm thành phần và thời gian từng bước (không qua cache)
+    MatchExplainResponse explainMatchTutors(MatchingRequest request);
+
+    // "Gia sư dành cho bạn" cho nhiều học viên, dùng chung một lần quét ứng viên (job gửi email hằng đêm)
+    List<StudentRecommendationResponse> recommendTutors(BatchRecommendationRequest request);
+
+    // Hit/miss/eviction của cache kết quả matching
+    MatchCacheStatsResponse getResultCacheStats();
 }
\ No newline at end of file
@@ -1,158 +1,600 @@
 package Support.Service;
 
-import Class.Entity.ClassStatus;
+import Support.Dto.Request.BatchRecommendationRequest;
 import Support.Dto.Request.MatchingRequest;
 import Support.Dto.Request.TutorFilterRequest;
+import Support.Dto.Response.MatchCacheStatsResponse;
+import Support.Dto.Response.MatchExplainResponse;
+import Support.Dto.Response.ScoreBreakdownResponse;
+import Support.Dto.Response.StudentRecommendationResponse;
+import Support.Dto.Response.TutorMatchPageResponse;
 import Support.Dto.Response.TutorMatchResponse;
+import Support.Embedding.HashedTextEmbedder;
+import Support.Index.MatchCursor;
+import Support.Index.MatchFilterKey;
+import Support.Index.MatchQuery;
+import Support.Index.MatchResultCache;
+import Support.Index.MatchResultKey;
+import Support.Index.MatchSnapshot;
+import Support.Index.MatchSnapshotCache;
+import Support.Index.TopK;
+import Support.Index.TutorMatchIndex;
+import Support.Index.TutorVectorIndex;
+import Support.Index.WeekBitmap;
+import Support.Preference.StudentPreference;
+import Support.Preference.StudentPreferenceCache;
+import Support.Ranking.Ranker;
+import Support.Ranking.RankerRegistry;
 import User.DTO.Response.TutorProfileResponse;
-import User.Entity.StudentProfile;
-import User.Entity.TutorProfile;
-import User.Entity.VerificationStatus;
-import User.Repository.StudentProfileRepository;
-import User.Repository.TutorProfileRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 @Service
 @RequiredArgsConstructor
 public class MatchingServiceImpl implements MatchingService {
 
-    private final TutorProfileRepository tutorRepository;
-    private final StudentProfileRepository studentRepository;
+    private static final int DEFAULT_LIMIT = 20;
+    // Trần cho limit của request: TopK cấp mảng K phần tử ngay từ đầu, limit cũng là khóa cache
+    static final int MAX_LIMIT = 100;
+
+    private final TutorMatchIndex tutorMatchIndex;
+    private final TutorVectorIndex tutorVectorIndex;
+    private final MatchSnapshotCache matchSnapshotCache;
+    private final MatchResultCache matchResultCache;
+    private final ForkJoinPool matchingForkJoinPool;
+    private final MatchingMetrics matchingMetrics;
+    private final RankerRegistry rankerRegistry;
+    private final StudentPreferenceCache studentPreferenceCache;
+
+    // Số ứng viên tối thiểu để chuyển sang chấm điểm song song (VD: tìm toàn quốc)
+    @Value("${matching.parallel.threshold:20000}")
+    private int parallelThreshold;
+
+    // Kích thước mỗi chunk khi chia cho ForkJoinPool
+    @Value("${matching.parallel.chunk-size:4096}")
+    private int parallelChunkSize;
+
+    // Số gia sư gần nhất lấy từ TutorVectorIndex ở semantic mode, trước khi lọc
+    @Value("${matching.vector.candidates:200}")
+    private int semanticCandidates;
+
+    // Số gia sư tối đa giữ trong một snapshot phân trang
+    @Value("${matching.page.snapshot-size:500}")
+    private int snapshotSize;
+
+    // Số gia sư đầu bảng được chấm lại theo sở thích học viên
+    @Value("${matching.preference.rescore-depth:100}")
+    private int rescoreDepth;
+
+    // Số học viên tối đa trong một lần gọi batch recommendations
+    @Value("${matching.recommendations.max-students:5000}")
+    private int maxBatchStudents;
 
     @Override
-    @Transactional(readOnly = true)
     public List<TutorMatchResponse> searchTutors(TutorFilterRequest req) {
-        // 1. Resolve Student Preferences
-        String effectiveSubjectId = req.getSubjectId();
-        if (req.getStudentId() != null) {
-            StudentProfile student = studentRepository.findById(req.getStudentId()).orElse(null);
-            if (student != null && effectiveSubjectId == null && !student.getPreferredSubject().isEmpty()) {
-                // Lấy subject đầu tiên trong list preferences (giả lập logic TS)
-                // Lưu ý: preferredSubjects trong Entity là String[] hoặc List<String>
-                // effectiveSubjectId = student.getPreferredSubjects().get(0);
-            }
+        return cachedSearch(req, DEFAULT_LIMIT, "search");
+    }
+
+    @Override
+    public MatchExplainResponse explainSearchTutors(TutorFilterRequest req) {
+        // Explain luôn tính lại (không qua cache) để có thời gian thật của từng bước
+        return explainSearch(req, DEFAULT_LIMIT, null, new MatchTrace("search"));
+    }
+
+    @Override
+    public TutorMatchPageResponse searchTutorsPage(TutorFilterRequest request, String cursor, int size) {
+        MatchTrace trace = new MatchTrace("page");
+        MatchCursor position = cursor != null && !cursor.isBlank() ? MatchCursor.decode(cursor) : null;
+        // Snapshot dùng chung cho mọi học viên cùng bộ lọc nên chỉ áp môn ưu tiên, không chấm lại theo sở thích
+        TutorFilterRequest req = withPreferredSubject(request, preferenceOf(request.getStudentId()));
+        Ranker ranker = rankerRegistry.rankerFor(req.getStudentId());
+        // Trang đầu tính và xếp hạng cả snapshot; các trang sau đọc đúng snapshot ghi trong cursor.
+        // Snapshot đã hết hạn thì offset cũ không còn ý nghĩa: client phải phân trang lại từ đầu.
+        MatchResultKey snapshotKey = new MatchResultKey(MatchFilterKey.of(req), snapshotSize, ranker.version());
+        MatchSnapshot snapshot;
+        if (position != null) {
+            snapshot = matchSnapshotCache.find(position.snapshotId(), snapshotKey);
+            if (snapshot == null) throw new RuntimeException("Cursor expired, please restart from the first page");
+        } else {
+            snapshot = matchSnapshotCache.get(snapshotKey, key -> rankSnapshot(req, ranker, trace));
         }
+        int from = position != null ? Math.min(position.offset(), snapshot.size()) : 0;
+        int to = Math.min(from + Math.max(size, 1), snapshot.size());
 
-        // 2. Fetch Potential Tutors (Hard Filters: City, District, Verified)
-        List<TutorProfile> candidates = tutorRepository.findPotentialTutors(
-                VerificationStatus.VERIFIED,
-                req.getCity(),
-                req.getDistrict()
-        );
+        long mapStart = System.nanoTime();
+        List<TutorMatchResponse> items = tutorMatchIndex.read(() -> {
+            List<TutorMatchResponse> page = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                // Gia sư đã rời index sau khi snapshot được tạo thì bỏ qua
+                int slot = tutorMatchIndex.slotOf(snapshot.tutorIds()[i]);
+                if (slot < 0) continue;
+                page.add(TutorMatchResponse.builder()
+                        .tutor(mapToTutorResponse(slot))
+                        .matchScore(snapshot.scores()[i])
+                        .distanceKm(distanceKm(slot, req))
+                        .build());
+            }
+            return page;
+        });
+        trace.stage(MatchTrace.Stage.MAP, mapStart);
+        matchingMetrics.record(trace);
 
-        // 3. Score & Filter In-Memory
-        String finalSubjectId = effectiveSubjectId;
-        return candidates.stream()
-                .map(tutor -> calculateMatch(tutor, req, finalSubjectId))
-                .sorted((a, b) -> Double.compare(b.getMatchScore(), a.getMatchScore())) // Sort Descending
-                .limit(20)
-                .collect(Collectors.toList());
+        return TutorMatchPageResponse.builder()
+                .items(items)
+                .nextCursor(to < snapshot.size() ? new MatchCursor(snapshot.id(), to).encode() : null)
+                .build();
     }
 
     @Override
     public List<TutorMatchResponse> matchTutors(MatchingRequest request) {
+        TutorFilterRequest filter = toFilter(request);
+        List<String> nearestTutorIds = nearestTutorIds(request);
+
+        // limit của request chính là K của heap
+        if (nearestTutorIds != null) {
+            // Kết quả semantic phụ thuộc vector truy vấn nên không cache
+            StudentPreference preference = preferenceOf(filter.getStudentId());
+            Ranker ranker = rankerRegistry.rankerFor(filter.getStudentId());
+            int depth = rescoreDepth(preference, clampLimit(request.getLimit()));
+            List<TutorMatchResponse> results = search(withPreferredSubject(filter, preference), depth,
+                    nearestTutorIds, ranker, new MatchTrace("semantic"), false);
+            return preference != null ? personalize(results, preference, clampLimit(request.getLimit())) : results;
+        }
+        return cachedSearch(filter, clampLimit(request.getLimit()), "match");
+    }
+
+    @Override
+    public MatchExplainResponse explainMatchTutors(MatchingRequest request) {
+        TutorFilterRequest filter = toFilter(request);
+        List<String> nearestTutorIds = nearestTutorIds(request);
+        MatchTrace trace = new MatchTrace(nearestTutorIds != null ? "semantic" : "match");
+        return explainSearch(filter, clampLimit(request.getLimit()), nearestTutorIds, trace);
+    }
+
+    @Override
+    public List<StudentRecommendationResponse> recommendTutors(BatchRecommendationRequest request) {
+        List<String> studentIds = request.getStudentIds().stream().distinct().toList();
+        if (studentIds.size() > maxBatchStudents) {
+            throw new RuntimeException("Too many students in one batch (max " + maxBatchStudents + ")");
+        }
+        Map<String, StudentPreference> preferences = studentPreferenceCache.getAll(studentIds);
+        List<StudentPreference> students = new ArrayList<>(preferences.size());
+        for (String studentId : studentIds) {
+            StudentPreference preference = preferences.get(studentId);
+            if (preference != null) students.add(preference);
+        }
+
+        MatchTrace trace = new MatchTrace("batch");
+        List<StudentRecommendationResponse> responses = tutorMatchIndex.read(() -> {
+            // Một lần quét ứng viên cho cả lô: baseScore tính một lần mỗi gia sư, phần còn lại tính cho từng học viên
+            long start = System.nanoTime();
+            int[] candidates = tutorMatchIndex.candidates(request.getCity(), request.getDistrict());
+            BatchQuery batch = compileBatch(students);
+            trace.candidateCount = candidates.length;
+            trace.stage(MatchTrace.Stage.CANDIDATES, start);
+
+            start = System.nanoTime();
+            TopK[] tops = candidates.length >= parallelThreshold
+                    ? matchingForkJoinPool.invoke(new BatchScoreTask(candidates, 0, candidates.length, batch, clampLimit(request.getLimit())))
+                    : scoreBatch(candidates, 0, candidates.length, batch, clampLimit(request.getLimit()));
+            trace.stage(MatchTrace.Stage.SCORING, start);
+
+            start = System.nanoTime();
+            for (TopK top : tops) top.sortDescending();
+            trace.stage(MatchTrace.Stage.SORT, start);
+
+            start = System.nanoTime();
+            // Cùng gia sư xuất hiện trong nhiều danh sách thì chỉ map DTO một lần
+            Map<Integer, TutorProfileResponse> tutors = new HashMap<>();
+            List<StudentRecommendationResponse> result = new ArrayList<>(tops.length);
+            for (int s = 0; s < tops.length; s++) {
+                TopK top = tops[s];
+                List<TutorMatchResponse> matches = new ArrayList<>(top.size());
+                for (int i = 0; i < top.size(); i++) {
+                    matches.add(TutorMatchResponse.builder()
+                            .tutor(tutors.computeIfAbsent(top.slotAt(i), this::mapToTutorResponse))
+                            .matchScore(top.scoreAt(i))
+                            .build());
+                }
+                result.add(StudentRecommendationResponse.builder()
+                        .studentId(students.get(s).getStudentId())
+                        .tutors(matches)
+                        .build());
+            }
+            trace.stage(MatchTrace.Stage.MAP, start);
+            return result;
+        });
+        matchingMetrics.record(trace);
+        return responses;
+    }
+
+    @Override
+    public MatchCacheStatsResponse getResultCacheStats() {
+        return matchResultCache.stats();
+    }
+
+    // Kết quả chưa cá nhân hóa được cache chung theo bộ lọc; có StudentPreference thì cache top-N rồi chấm lại
+    private List<TutorMatchResponse> cachedSearch(TutorFilterRequest request, int limit, String operation) {
+        StudentPreference preference = preferenceOf(request.getStudentId());
+        TutorFilterRequest req = withPreferredSubject(request, preference);
+        Ranker ranker = rankerRegistry.rankerFor(req.getStudentId());
+        int depth = rescoreDepth(preference, limit);
+        List<TutorMatchResponse> results = matchResultCache.get(
+                new MatchResultKey(MatchFilterKey.of(req), depth, ranker.version()),
+                key -> search(req, depth, null, ranker, new MatchTrace(operation), false));
+        return preference != null ? personalize(results, preference, limit) : results;
+    }
+
+    private MatchExplainResponse explainSearch(TutorFilterRequest request, int limit, List<String> restrictTo,
+                                               MatchTrace trace) {
+        StudentPreference preference = preferenceOf(request.getStudentId());
+        TutorFilterRequest req = withPreferredSubject(request, preference);
+        Ranker ranker = rankerRegistry.rankerFor(req.getStudentId());
+        List<TutorMatchResponse> results = search(req, rescoreDepth(preference, limit), restrictTo, ranker, trace, true);
+        if (preference != null) results = personalize(results, preference, limit);
+        return MatchExplainResponse.builder()
+                .ranker(ranker.version())
+                .results(results)
+                .candidateCount(trace.candidateCount)
+                .stageTimingsMs(trace.timingsMs())
+                .build();
+    }
+
+    // 1. Resolve Student Preferences
+    private StudentPreference preferenceOf(String studentId) {
+        if (studentId == null || studentId.isBlank()) return null;
+        return studentPreferenceCache.get(studentId);
+    }
+
+    // Request không có subjectId thì lấy môn ưu tiên nhất của học viên
+    private TutorFilterRequest withPreferredSubject(TutorFilterRequest req, StudentPreference preference) {
+        if (preference == null || preference.getPrimarySubjectId() == null
+                || (req.getSubjectId() != null && !req.getSubjectId().isBlank())) {
+            return req;
+        }
+        return req.toBuilder().subjectId(preference.getPrimarySubjectId()).build();
+    }
+
+    private int rescoreDepth(StudentPreference preference, int limit) {
+        return preference != null ? Math.max(rescoreDepth, limit) : limit;
+    }
+
+    /**
+     * Chấm lại top-N (đã xếp theo ranker) bằng điểm sở thích của học viên rồi giữ limit kết quả.
+     * Chỉ đụng tới N gia sư nên rẻ hơn nhiều so với chấm lại toàn bộ ứng viên.
+     */
+    private List<TutorMatchResponse> personalize(List<TutorMatchResponse> candidates, StudentPreference preference,
+                                                 int limit) {
+        return tutorMatchIndex.read(() -> {
+            StudentPreference.Scorer scorer = preference.scorer(tutorMatchIndex);
+            double[] bonuses = new double[candidates.size()];
+            // TopK theo vị trí trong danh sách thay vì slot
+            TopK top = new TopK(limit);
+            for (int i = 0; i < candidates.size(); i++) {
+                int slot = tutorMatchIndex.slotOf(candidates.get(i).getTutor().getId());
+                bonuses[i] = slot >= 0 ? scorer.bonus(slot) : 0;
+                top.offer(i, candidates.get(i).getMatchScore() + bonuses[i]);
+            }
+            top.sortDescending();
+
+            List<TutorMatchResponse> result = new ArrayList<>(top.size());
+            for (int i = 0; i < top.size(); i++) {
+                TutorMatchResponse match = candidates.get(top.slotAt(i));
+                ScoreBreakdownResponse breakdown = match.getBreakdown();
+                result.add(TutorMatchResponse.builder()
+                        .tutor(match.getTutor())
+                        .matchScore(top.scoreAt(i))
+                        .distanceKm(match.getDistanceKm())
+                        .breakdown(breakdown != null
+                                ? breakdown.toBuilder()
+                                        .preference(bonuses[top.slotAt(i)])
+                                        .total(top.scoreAt(i))
+                                        .build()
+                                : null)
+                        .build());
+            }
+            return result;
+        });
+    }
+
+    private TutorFilterRequest toFilter(MatchingRequest request) {
         // Đây là nơi gọi "Matching Engine" phức tạp.
         // Trong phạm vi file TS, nó import `matchTutors` từ domain/matchingEngine.
         // Ở đây mình sẽ giả lập một logic cơ bản tương tự hàm search nhưng dùng budget.
 
         // Convert MatchingRequest sang FilterRequest để tái sử dụng logic cơ bản
         TutorFilterRequest filter = new TutorFilterRequest();
+        filter.setStudentId(request.getStudentId());
         filter.setSubjectId(request.getSubjectId());
         filter.setGradeLevel(request.getGradeLevel());
         filter.setCity(request.getCity());
         filter.setDistrict(request.getDistrict());
         // Budget logic có thể phức tạp hơn (VD: +/- 20%)
         filter.setPriceMax(request.getBudgetPerHour() * 1.2);
+        filter.setWithinBudget(true);
+        filter.setDesiredSlots(request.getDesiredSlots());
+        filter.setTimezone(request.getTimezone());
+        filter.setAvailableOnly(request.isAvailableOnly());
+        filter.setLatitude(request.getLatitude());
+        filter.setLongitude(request.getLongitude());
+        filter.setRadiusKm(request.getRadiusKm());
+        return filter;
+    }
 
-        List<TutorMatchResponse> matches = searchTutors(filter);
+    // Semantic mode: chỉ xét các gia sư gần queryEmbedding nhất; null nếu không bật semantic
+    private List<String> nearestTutorIds(MatchingRequest request) {
+        if (!request.isSemantic()) return null;
+        float[] queryVector;
+        if (request.getQueryEmbedding() != null && !request.getQueryEmbedding().isEmpty()) {
+            queryVector = new float[request.getQueryEmbedding().size()];
+            for (int i = 0; i < queryVector.length; i++) {
+                queryVector[i] = request.getQueryEmbedding().get(i);
+            }
+        } else if (request.getDescription() != null && !request.getDescription().isBlank()) {
+            // Không gửi vector thì embed description bằng cùng model local với hồ sơ gia sư
+            queryVector = HashedTextEmbedder.embed(request.getDescription());
+        } else {
+            throw new RuntimeException("Query embedding or description is required for semantic matching");
+        }
+        return tutorVectorIndex.nearest(queryVector, Math.max(semanticCandidates, clampLimit(request.getLimit())));
+    }
 
-        // Cắt theo limit của request
-        return matches.stream().limit(request.getLimit()).collect(Collectors.toList());
+    private static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
     }
 
-    // --- HELPER: Scoring Logic (Ported from TS) ---
-    private TutorMatchResponse calculateMatch(TutorProfile tutor, TutorFilterRequest req, String subjectId) {
-        // Filter Classes của Tutor này xem có khớp Subject/Grade/Price không
-        // Lưu ý: tutor.getClasses() đã được fetch eager hoặc lazy (trong transaction)
+    // restrictTo: null = mọi gia sư trong index, ngược lại chỉ xét các tutorId này
+    private List<TutorMatchResponse> search(TutorFilterRequest req, int limit, List<String> restrictTo,
+                                            Ranker ranker, MatchTrace trace, boolean explain) {
+        List<TutorMatchResponse> results = tutorMatchIndex.read(() -> {
+            Ranking ranking = rank(req, limit, restrictTo, ranker, trace);
+            TopK top = ranking.top();
 
-        boolean subjectMatch = false;
-        boolean gradeMatch = false;
+            // 4. Chỉ map DTO cho K gia sư thắng
+            long mapStart = System.nanoTime();
+            List<TutorMatchResponse> result = new ArrayList<>(top.size());
+            for (int i = 0; i < top.size(); i++) {
+                int slot = top.slotAt(i);
+                result.add(TutorMatchResponse.builder()
+                        .tutor(mapToTutorResponse(slot))
+                        .matchScore(top.scoreAt(i))
+                        .distanceKm(distanceKm(slot, req))
+                        .breakdown(explain ? ranker.explain(tutorMatchIndex, slot, ranking.query()) : null)
+                        .build());
+            }
+            trace.stage(MatchTrace.Stage.MAP, mapStart);
+            return result;
+        });
+        matchingMetrics.record(trace);
+        return results;
+    }
+
+    private MatchSnapshot rankSnapshot(TutorFilterRequest req, Ranker ranker, MatchTrace trace) {
+        return tutorMatchIndex.read(() -> {
+            TopK top = rank(req, snapshotSize, null, ranker, trace).top();
+            String[] tutorIds = new String[top.size()];
+            double[] scores = new double[top.size()];
+            for (int i = 0; i < top.size(); i++) {
+                tutorIds[i] = tutorMatchIndex.tutorId(top.slotAt(i));
+                scores[i] = top.scoreAt(i);
+            }
+            return new MatchSnapshot(UUID.randomUUID().toString(), tutorIds, scores);
+        });
+    }
+
+    // Top K đã sắp xếp giảm dần + query đã compile (explain cần để tách điểm)
+    private record Ranking(TopK top, MatchQuery query) {
+    }
+
+    // Gọi trong read lock của index
+    private Ranking rank(TutorFilterRequest req, int limit, List<String> restrictTo, Ranker ranker,
+                         MatchTrace trace) {
+        // 2. Fetch Potential Tutors từ index trong bộ nhớ (Hard Filters: City/District hoặc bán kính, Verified)
+        long start = System.nanoTime();
+        int[] candidates = candidates(req, restrictTo);
+        MatchQuery query = tutorMatchIndex.compileQuery(
+                req.getSubjectId(), req.getGradeLevel(), req.getPriceMin(), req.getPriceMax(),
+                req.isWithinBudget(), WeekBitmap.fromSlots(req.getDesiredSlots(), req.getTimezone()),
+                req.isAvailableOnly(), req.getLatitude(), req.getLongitude(), req.getRadiusKm());
+        trace.candidateCount = candidates.length;
+        trace.stage(MatchTrace.Stage.CANDIDATES, start);
+
+        // 3. Score & giữ top K (song song khi tập ứng viên lớn)
+        start = System.nanoTime();
+        TopK top = candidates.length >= parallelThreshold
+                ? matchingForkJoinPool.invoke(new ScoreTask(candidates, 0, candidates.length, query, limit, ranker))
+                : scoreCandidates(candidates, 0, candidates.length, query, limit, ranker);
+        trace.stage(MatchTrace.Stage.SCORING, start);
+
+        start = System.nanoTime();
+        top.sortDescending();
+        trace.stage(MatchTrace.Stage.SORT, start);
+        return new Ranking(top, query);
+    }
 
-        if (tutor.getClasses() != null) {
-            subjectMatch = subjectId != null && tutor.getClasses().stream()
-                    .anyMatch(c -> c.getSubjectId().equals(subjectId) && c.getStatus() == ClassStatus.PUBLISHED);
+    // package-private: matching-bench đo riêng bước chấm điểm
+    TopK scoreCandidates(int[] candidates, int from, int to, MatchQuery query, int k, Ranker ranker) {
+        TopK top = new TopK(k);
+        double maxBonus = ranker.maxBonus(query);
+        for (int i = from; i < to; i++) {
+            int slot = candidates[i];
+            // Prefilter theo budget bằng binary search trên mảng giá đã sắp xếp
+            if (query.isWithinBudget()
+                    && !tutorMatchIndex.hasPriceWithin(slot, query.getPriceMin(), query.getPriceMax())) continue;
+            if (query.isAvailabilityRequired()
+                    && tutorMatchIndex.availabilityOverlap(slot, query.getDesiredSlots()) == 0) continue;
+            double base = ranker.baseScore(tutorMatchIndex, slot);
+            // Cắt sớm: dù được cộng đủ bonus (penalty >= 0) cũng không vượt được điểm thứ K
+            if (top.isFull() && base + maxBonus <= top.minScore()) continue;
+            top.offer(slot, base + ranker.matchBonus(tutorMatchIndex, slot, query));
+        }
+        return top;
+    }
 
-            gradeMatch = req.getGradeLevel() != null && tutor.getClasses().stream()
-                    .anyMatch(c -> c.getTargetGrade() != null &&
-                            c.getTargetGrade().toLowerCase().contains(req.getGradeLevel().toLowerCase()));
+    // Có radiusKm: tra GeoGrid theo bán kính thay cho city/district
+    private int[] candidates(TutorFilterRequest req, List<String> restrictTo) {
+        if (req.getRadiusKm() == null) {
+            return restrictTo != null
+                    ? tutorMatchIndex.candidates(req.getCity(), req.getDistrict(), restrictTo)
+                    : tutorMatchIndex.candidates(req.getCity(), req.getDistrict());
+        }
+        if (req.getLatitude() == null || req.getLongitude() == null) {
+            throw new RuntimeException("Latitude and longitude are required for radius search");
         }
+        return restrictTo != null
+                ? tutorMatchIndex.candidatesWithin(req.getLatitude(), req.getLongitude(), req.getRadiusKm(), restrictTo)
+                : tutorMatchIndex.candidatesWithin(req.getLatitude(), req.getLongitude(), req.getRadiusKm());
+    }
+
+    // Chia mảng ứng viên thành các chunk, mỗi chunk tự giữ top K rồi gộp lại
+    private class ScoreTask extends RecursiveTask<TopK> {
+        private final int[] candidates;
+        private final int from;
+        private final int to;
+        private final MatchQuery query;
+        private final int k;
+        private final Ranker ranker;
 
-        // Calculate Price Penalty
-        double pricePenalty = 0;
-        if (req.getPriceMin() != null || req.getPriceMax() != null) {
-            double min = req.getPriceMin() != null ? req.getPriceMin() : Double.NEGATIVE_INFINITY;
-            double max = req.getPriceMax() != null ? req.getPriceMax() : Double.POSITIVE_INFINITY;
+        ScoreTask(int[] candidates, int from, int to, MatchQuery query, int k, Ranker ranker) {
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.query = query;
+            this.k = k;
+            this.ranker = ranker;
+        }
 
-            Double closestPrice = null;
-            if (tutor.getClasses() != null) {
-                for (Class.Entity.Class cls : tutor.getClasses()) {
-                    if (cls.getPricePerHour() == null) continue;
-                    double price = cls.getPricePerHour();
+        @Override
+        protected TopK compute() {
+            if (to - from <= parallelChunkSize) {
+                return scoreCandidates(candidates, from, to, query, k, ranker);
+            }
+            int mid = (from + to) >>> 1;
+            ScoreTask left = new ScoreTask(candidates, from, mid, query, k, ranker);
+            left.fork();
+            TopK right = new ScoreTask(candidates, mid, to, query, k, ranker).compute();
+            TopK merged = left.join();
+            merged.merge(right);
+            return merged;
+        }
+    }
 
-                    if (closestPrice == null) {
-                        closestPrice = price;
-                    } else {
-                        // Tìm giá gần khoảng range nhất
-                        double distCurrent = Math.min(Math.abs(price - min), Math.abs(price - max));
-                        double distClosest = Math.min(Math.abs(closestPrice - min), Math.abs(closestPrice - max));
+    // ================= BATCH RECOMMENDATIONS =================
 
-                        // Logic đơn giản hóa: Nếu nằm trong range thì dist = 0
-                        if (price >= min && price <= max) distCurrent = 0;
-                        if (closestPrice >= min && closestPrice <= max) distClosest = 0;
+    // Query đã compile cho từng học viên trong lô; rankers là các ranker khác nhau (A/B), rankerOf trỏ vào đó
+    private record BatchQuery(Ranker[] rankers, int[] rankerOf, MatchQuery[] queries,
+                              StudentPreference.Scorer[] scorers, double[] maxBonus) {
+        int students() {
+            return queries.length;
+        }
+    }
 
-                        if (distCurrent < distClosest) closestPrice = price;
-                    }
-                }
+    // Gọi trong read lock của index
+    private BatchQuery compileBatch(List<StudentPreference> students) {
+        List<Ranker> rankers = new ArrayList<>();
+        int n = students.size();
+        int[] rankerOf = new int[n];
+        MatchQuery[] queries = new MatchQuery[n];
+        StudentPreference.Scorer[] scorers = new StudentPreference.Scorer[n];
+        double[] maxBonus = new double[n];
+        for (int s = 0; s < n; s++) {
+            StudentPreference student = students.get(s);
+            Ranker ranker = rankerRegistry.rankerFor(student.getStudentId());
+            int r = rankers.indexOf(ranker);
+            if (r < 0) {
+                r = rankers.size();
+                rankers.add(ranker);
             }
+            rankerOf[s] = r;
+            // Không có bộ lọc giá/lịch/vị trí: chỉ môn ưu tiên + lớp của học viên
+            queries[s] = tutorMatchIndex.compileQuery(student.getPrimarySubjectId(), student.getGradeLevel(),
+                    null, null, false, null, false, null, null, null);
+            scorers[s] = student.scorer(tutorMatchIndex);
+            maxBonus[s] = ranker.maxBonus(queries[s]) + scorers[s].maxBonus();
+        }
+        return new BatchQuery(rankers.toArray(new Ranker[0]), rankerOf, queries, scorers, maxBonus);
+    }
 
-            if (closestPrice != null) {
-                if (closestPrice < min) pricePenalty += (min - closestPrice);
-                if (closestPrice > max) pricePenalty += (closestPrice - max);
+    // Vòng ngoài là gia sư để mỗi slot chỉ được đọc và tính baseScore một lần cho cả lô
+    private TopK[] scoreBatch(int[] candidates, int from, int to, BatchQuery batch, int k) {
+        TopK[] tops = new TopK[batch.students()];
+        for (int s = 0; s < tops.length; s++) tops[s] = new TopK(k);
+        double[] base = new double[batch.rankers().length];
+        for (int i = from; i < to; i++) {
+            int slot = candidates[i];
+            for (int r = 0; r < base.length; r++) {
+                base[r] = batch.rankers()[r].baseScore(tutorMatchIndex, slot);
+            }
+            for (int s = 0; s < tops.length; s++) {
+                int r = batch.rankerOf()[s];
+                TopK top = tops[s];
+                // Cắt sớm như scoreCandidates, cận trên gồm cả điểm sở thích
+                if (top.isFull() && base[r] + batch.maxBonus()[s] <= top.minScore()) continue;
+                top.offer(slot, base[r]
+                        + batch.rankers()[r].matchBonus(tutorMatchIndex, slot, batch.queries()[s])
+                        + batch.scorers()[s].bonus(slot));
             }
         }
+        return tops;
+    }
 
-        // Calculate Score formula
-        // tutor.trustScore * 0.5 + tutor.averageRating * 10 + ...
-        double score = (tutor.getTrustScore() * 0.5) +
-                (tutor.getAverageRating() * 10) +
-                (tutor.getTotalCompletedBookings() * 2) +
-                (subjectMatch ? 6 : 0) +
-                (gradeMatch ? 4 : 0) -
-                pricePenalty;
+    private class BatchScoreTask extends RecursiveTask<TopK[]> {
+        private final int[] candidates;
+        private final int from;
+        private final int to;
+        private final BatchQuery batch;
+        private final int k;
 
-        return TutorMatchResponse.builder()
-                .tutor(mapToTutorResponse(tutor)) // Cần hàm map và sanitize
-                .matchScore(score)
-                .build();
+        BatchScoreTask(int[] candidates, int from, int to, BatchQuery batch, int k) {
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.batch = batch;
+            this.k = k;
+        }
+
+        @Override
+        protected TopK[] compute() {
+            if (to - from <= parallelChunkSize) {
+                return scoreBatch(candidates, from, to, batch, k);
+            }
+            int mid = (from + to) >>> 1;
+            BatchScoreTask left = new BatchScoreTask(candidates, from, mid, batch, k);
+            left.fork();
+            TopK[] right = new BatchScoreTask(candidates, mid, to, batch, k).compute();
+            TopK[] merged = left.join();
+            for (int s = 0; s < merged.length; s++) merged[s].merge(right[s]);
+            return merged;
+        }
+    }
+
+    private Double distanceKm(int slot, TutorFilterRequest req) {
+        if (req.getLatitude() == null || req.getLongitude() == null) return null;
+        double distance = tutorMatchIndex.distanceKm(slot, req.getLatitude(), req.getLongitude());
+        return Double.isNaN(distance) ? null : distance;
     }
 
-    private TutorProfileResponse mapToTutorResponse(TutorProfile entity) {
+    // package-private: matching-bench đo riêng bước map DTO
+    TutorProfileResponse mapToTutorResponse(int slot) {
         // Map và Mask National ID (Sanitizer)
         return TutorProfileResponse.builder()
-                .id(entity.getId())
-                .userId(entity.getUserId())
+                .id(tutorMatchIndex.tutorId(slot))
+                .userId(tutorMatchIndex.userId(slot))
                 // .fullName(entity.getUser().getFullName()) // Cần join User
-                .bio(entity.getBio())
-                .trustScore(entity.getTrustScore())
-                .averageRating(entity.getAverageRating())
+                .bio(tutorMatchIndex.bio(slot))
+                .trustScore(tutorMatchIndex.trustScore(slot))
+                .averageRating(tutorMatchIndex.averageRating(slot))
                 // Mask ID
-                .nationalIdNumber(entity.getNationalIdNumber() != null ? "******" : null)
+                .nationalIdNumber(tutorMatchIndex.hasNationalId(slot) ? "******" : null)
                 .build();
     }
 }
\ No newline at end of file
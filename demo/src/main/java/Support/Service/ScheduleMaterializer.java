@@ -0,0 +1,161 @@
+package Support.Service;
+
+import Booking.Entity.Booking;
+import Booking.Entity.BookingStatus;
+import Support.Entity.ScheduleStatus;
+import Support.Index.TimeRange;
+import Support.Index.TutorScheduleChangedEvent;
+import Support.Outbox.OutboxPublisher;
+import Support.Repository.ScheduleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Sinh các buổi học (Schedule) hằng tuần cho booking đã xác nhận, chỉ trong cửa sổ horizon-weeks tính từ hôm nay.
+ * Ghi bằng JDBC batch insert thay vì save từng entity; job extendHorizon nối thêm từng tuần cho booking
+ * dài hạn để lịch luôn phủ đủ cửa sổ mà không phải lưu sẵn cả năm.
+ */
+@Component
+@Slf4j
+public class ScheduleMaterializer {
+
+    private static final String INSERT_SQL = "INSERT INTO schedule " +
+            "(id, tutor_id, student_id, booking_id, start_time, end_time, status) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    // Mặc định mỗi buổi 2 tiếng
+    private static final long SESSION_HOURS = 2;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ScheduleRepository scheduleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxPublisher outboxPublisher;
+    private final int horizonWeeks;
+    private final int batchSize;
+
+    public ScheduleMaterializer(JdbcTemplate jdbcTemplate,
+                                ScheduleRepository scheduleRepository,
+                                TransactionTemplate transactionTemplate,
+                                OutboxPublisher outboxPublisher,
+                                @Value("${booking.schedule.horizon-weeks:8}") int horizonWeeks,
+                                @Value("${booking.schedule.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.scheduleRepository = scheduleRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.outboxPublisher = outboxPublisher;
+        this.horizonWeeks = Math.max(1, horizonWeeks);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Các buổi sẽ sinh cho booking vừa xác nhận, từ startDateExpected tới hết cửa sổ horizon
+     * (để kiểm tra trùng lịch trước khi ghi). startDateExpected đã qua thì bắt đầu từ buổi
+     * cùng thứ, cùng giờ gần nhất chưa diễn ra, không sinh lại các tuần trong quá khứ.
+     */
+    public List<TimeRange> plan(Booking booking) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime start = booking.getStartDateExpected() != null
+                ? booking.getStartDateExpected()
+                : now.truncatedTo(ChronoUnit.HOURS);
+        start = notBefore(start, now);
+        // Booking bắt đầu xa trong tương lai vẫn có đủ horizon-weeks buổi
+        return weekly(start, start.plusWeeks(horizonWeeks));
+    }
+
+    /**
+     * Ghi các buổi đã plan cho booking. Chạy trong transaction của người gọi. Trả về số buổi đã tạo.
+     */
+    public int materialize(Booking booking, List<TimeRange> sessions) {
+        List<Object[]> rows = new ArrayList<>();
+        addRows(rows, booking.getId(), booking.getTutorId(), booking.getStudentId(), sessions);
+        insert(rows);
+        return rows.size();
+    }
+
+    /**
+     * Nối lịch cho các booking CONFIRMED có buổi cuối cùng rơi vào trước (now + horizon - 1 tuần),
+     * mỗi trang booking được ghi trong một transaction. Lịch đã bị gián đoạn thì nối tiếp từ buổi
+     * chưa diễn ra gần nhất, không lấp lại các tuần đã qua.
+     */
+    @Scheduled(cron = "${booking.schedule.extend-cron:0 0 2 * * *}")
+    public void extendHorizon() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plusWeeks(horizonWeeks);
+        LocalDateTime threshold = until.minusWeeks(1);
+        int extendedBookings = 0;
+        int created = 0;
+        String afterId = "";
+        while (true) {
+            List<Object[]> page = scheduleRepository.findBookingsToExtend(
+                    BookingStatus.CONFIRMED, threshold, afterId, PageRequest.of(0, batchSize));
+            if (page.isEmpty()) break;
+            afterId = (String) page.get(page.size() - 1)[0];
+
+            // [bookingId, tutorId, studentId, lastStartTime]
+            List<Object[]> rows = new ArrayList<>();
+            Set<String> tutorIds = new HashSet<>();
+            for (Object[] booking : page) {
+                LocalDateTime last = (LocalDateTime) booking[3];
+                addRows(rows, (String) booking[0], (String) booking[1], (String) booking[2],
+                        weekly(notBefore(last.plusWeeks(1), now), until));
+                tutorIds.add((String) booking[1]);
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                insert(rows);
+                tutorIds.forEach(tutorId -> outboxPublisher.broadcast(new TutorScheduleChangedEvent(tutorId)));
+            });
+            extendedBookings += page.size();
+            created += rows.size();
+        }
+        if (created > 0) {
+            log.info("Extended schedules of {} bookings with {} sessions", extendedBookings, created);
+        }
+    }
+
+    // Buổi đầu tiên cùng thứ, cùng giờ với from mà không trước now
+    private static LocalDateTime notBefore(LocalDateTime from, LocalDateTime now) {
+        if (!from.isBefore(now)) return from;
+        LocalDateTime start = from.plusWeeks(ChronoUnit.WEEKS.between(from, now));
+        return start.isBefore(now) ? start.plusWeeks(1) : start;
+    }
+
+    // Mỗi tuần một buổi, cùng giờ với buổi bắt đầu, cho tới trước until
+    private static List<TimeRange> weekly(LocalDateTime from, LocalDateTime until) {
+        List<TimeRange> sessions = new ArrayList<>();
+        for (LocalDateTime start = from; start.isBefore(until); start = start.plusWeeks(1)) {
+            sessions.add(new TimeRange(start, start.plusHours(SESSION_HOURS)));
+        }
+        return sessions;
+    }
+
+    private static void addRows(List<Object[]> rows, String bookingId, String tutorId, String studentId,
+                                List<TimeRange> sessions) {
+        for (TimeRange session : sessions) {
+            rows.add(new Object[]{
+                    UUID.randomUUID().toString(), tutorId, studentId, bookingId,
+                    Timestamp.valueOf(session.start()), Timestamp.valueOf(session.end()),
+                    ScheduleStatus.ACTIVE.name()
+            });
+        }
+    }
+
+    private void insert(List<Object[]> rows) {
+        if (rows.isEmpty()) return;
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, batchSize, (ps, row) -> {
+            for (int i = 0; i < row.length; i++) ps.setObject(i + 1, row[i]);
+        });
+    }
+}
@@ -1,5 +1,6 @@
 package User.DTO.Request;
 
+import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import lombok.AllArgsConstructor;
@@ -30,4 +31,12 @@ public class TutorUpdateRequest {
     private List<String> teachingModes;
     private String city;
     private String district;
+
+    @DecimalMin("-90.0")
+    @DecimalMax("90.0")
+    private Double latitude;
+
+    @DecimalMin("-180.0")
+    @DecimalMax("180.0")
+    private Double longitude;
 }
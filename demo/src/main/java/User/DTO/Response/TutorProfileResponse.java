@@ -20,6 +20,8 @@ public class TutorProfileResponse {
     private List<String> teachingModes;
     private String city;
     private String district;
+    private Double latitude;
+    private Double longitude;
 
     // Thông tin định danh (đã mask như trong tutorSanitizer.ts)
     private String nationalIdNumber;
@@ -61,6 +61,11 @@ public class TutorProfile {
 
     private String district;
 
+    // Tọa độ nơi dạy, dùng cho matching theo bán kính
+    private Double latitude;
+
+    private Double longitude;
+
     private Boolean verified = false;
 
     @Enumerated(EnumType.STRING)
@@ -110,6 +115,13 @@ public class TutorProfile {
 
     private String profileEmbeddingModel;
 
+    // Vector do TutorEmbeddingPipeline sinh ra, dạng int8 (xem Support.Embedding.EmbeddingCodec)
+    @Column(columnDefinition = "VARBINARY(1024)")
+    private byte[] profileEmbeddingVector;
+
+    // Thời điểm embed gần nhất; hồ sơ/lớp sửa sau mốc này sẽ được embed lại
+    private LocalDateTime profileEmbeddedAt;
+
     @Column(columnDefinition = "TEXT")
     private String moderationNote;
 
@@ -3,12 +3,24 @@ package User.Repository;
 import User.Entity.StudentProfile;
 import User.Entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface StudentProfileRepository extends JpaRepository<StudentProfile, String> {
     Optional<StudentProfile> findByUserId(String userId);
     Optional<StudentProfile> findByUser(User user);
+
+    // [studentId, gradeLevel], dùng để dựng StudentPreference theo lô
+    @Query("SELECT s.id, s.gradeLevel FROM StudentProfile s WHERE s.id IN :ids")
+    List<Object[]> findGradeLevels(@Param("ids") Collection<String> ids);
+
+    // [studentId, subjectId]
+    @Query("SELECT s.id, p FROM StudentProfile s JOIN s.preferredSubject p WHERE s.id IN :ids")
+    List<Object[]> findPreferredSubjects(@Param("ids") Collection<String> ids);
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package User.Repository;
 
 import User.Entity.TutorAvailability;
+import User.Entity.VerificationStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -13,4 +14,7 @@ public interface TutorAvailabilityRepository extends JpaRepository<TutorAvailabi
 
     // Tìm kiếm để trả về sau khi cập nhật
     List<TutorAvailability> findByTutorIdOrderByDayOfWeekAscStartMinuteAsc(String tutorId);
+
+    // Dùng cho TutorMatchIndex khi dựng toàn bộ bitmap lịch lúc khởi động
+    List<TutorAvailability> findByTutorVerificationStatus(VerificationStatus status);
 }
\ No newline at end of file
@@ -4,11 +4,18 @@ import User.DTO.Response.TrustScoreResponse;
 import User.Entity.TutorProfile;
 import User.Entity.User;
 import User.Entity.VerificationStatus;
+import org.springframework.data.domain.Pageable;
+import Booking.Entity.BookingStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +23,11 @@ import java.util.Optional;
 public interface TutorProfileRepository extends JpaRepository<TutorProfile, String> {
     TutorProfile findByUserId(String userId);
 
+    // Khóa dòng hồ sơ gia sư tới hết transaction: tuần tự hóa các lần ghi lịch của cùng một gia sư
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM TutorProfile t WHERE t.user.id = :userId")
+    TutorProfile findByUserIdForUpdate(@Param("userId") String userId);
+
     @Query("SELECT new com.example.dto.TrustScoreResponse(t.averageRating, t.trustScore, t.totalReviews, t.totalCompletedBookings) " +
             "FROM TutorProfile t WHERE t.id = :tutorId")
     Optional<TrustScoreResponse> findTrustScoreByTutorId(@Param("tutorId") String tutorId);
@@ -39,5 +51,99 @@ public interface TutorProfileRepository extends JpaRepository<TutorProfile, Stri
             @Param("district") String district
     );
 
+    // Dùng cho TutorMatchIndex khi cập nhật lại một gia sư
+    @Query("SELECT t FROM TutorProfile t " +
+            "LEFT JOIN FETCH t.user u " +
+            "LEFT JOIN FETCH t.classes c " +
+            "WHERE t.id = :id")
+    Optional<TutorProfile> findWithClassesById(@Param("id") String id);
+
+    // Dùng cho TutorVectorIndex: chỉ đọc cột embedding, không load cả entity
+    @Query("SELECT t.id, t.profileEmbedding, t.profileEmbeddingModel, t.profileEmbeddingVector, t.profileEmbeddedAt " +
+            "FROM TutorProfile t " +
+            "WHERE t.profileEmbedding IS NOT NULL OR t.profileEmbeddingVector IS NOT NULL")
+    List<Object[]> findAllEmbeddings();
+
+    @Query("SELECT t.profileEmbedding, t.profileEmbeddingModel, t.profileEmbeddingVector, t.profileEmbeddedAt " +
+            "FROM TutorProfile t " +
+            "WHERE t.id = :id")
+    List<Object[]> findEmbeddingById(@Param("id") String id);
+
+    @Query("SELECT t.id, t.profileEmbedding, t.profileEmbeddingModel, t.profileEmbeddingVector, t.profileEmbeddedAt " +
+            "FROM TutorProfile t " +
+            "WHERE t.id IN :ids")
+    List<Object[]> findEmbeddingsByIds(@Param("ids") Collection<String> ids);
+
+    @Query("SELECT COUNT(t) FROM TutorProfile t " +
+            "WHERE t.profileEmbedding IS NOT NULL OR t.profileEmbeddingVector IS NOT NULL")
+    long countWithEmbedding();
+
+    @Query("SELECT MAX(t.profileEmbeddedAt) FROM TutorProfile t " +
+            "WHERE t.profileEmbedding IS NOT NULL OR t.profileEmbeddingVector IS NOT NULL")
+    LocalDateTime findMaxEmbeddedAt();
+
+    // --- TutorEmbeddingPipeline ---
+    // Hồ sơ cần embed (lại), duyệt keyset theo id
+    @Query("SELECT t.id FROM TutorProfile t " +
+            "WHERE t.id > :afterId " +
+            "AND (t.profileEmbeddedAt IS NULL " +
+            "OR t.profileEmbeddingModel IS NULL OR t.profileEmbeddingModel <> :model " +
+            "OR t.updatedAt > t.profileEmbeddedAt " +
+            "OR EXISTS (SELECT 1 FROM Class c WHERE c.tutorId = t.id AND c.updatedAt > t.profileEmbeddedAt)) " +
+            "ORDER BY t.id")
+    List<String> findIdsNeedingEmbedding(@Param("model") String model, @Param("afterId") String afterId,
+                                         Pageable pageable);
+
+    @Query("SELECT t.id, t.bio, t.education FROM TutorProfile t WHERE t.id IN :ids")
+    List<Object[]> findEmbeddingTexts(@Param("ids") Collection<String> ids);
+
+    @Query("SELECT t.id, cert FROM TutorProfile t JOIN t.certificates cert WHERE t.id IN :ids")
+    List<Object[]> findCertificates(@Param("ids") Collection<String> ids);
+
+    // ================= BOOKING COUNTERS =================
+
+    // Cộng dồn counter booking ngay trong DB (delta âm khi booking rời trạng thái COMPLETED/CANCELLED)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE TutorProfile t SET " +
+            "t.totalBookings = COALESCE(t.totalBookings, 0) + :total, " +
+            "t.totalCompletedBookings = COALESCE(t.totalCompletedBookings, 0) + :completed, " +
+            "t.totalCancelledBookings = COALESCE(t.totalCancelledBookings, 0) + :cancelled " +
+            "WHERE t.id = :tutorId")
+    int addBookingCounters(@Param("tutorId") String tutorId,
+                           @Param("total") int total,
+                           @Param("completed") int completed,
+                           @Param("cancelled") int cancelled);
+
+    // [totalCompletedBookings, totalCancelledBookings]
+    @Query("SELECT t.totalCompletedBookings, t.totalCancelledBookings FROM TutorProfile t WHERE t.id = :tutorId")
+    List<Object[]> findBookingCounters(@Param("tutorId") String tutorId);
+
+    // [tutorId, totalCompletedBookings, totalCancelledBookings] cho một batch của TrustScoreRecomputeQueue
+    @Query("SELECT t.id, t.totalCompletedBookings, t.totalCancelledBookings FROM TutorProfile t WHERE t.id IN :tutorIds")
+    List<Object[]> findBookingCountersByIds(@Param("tutorIds") Collection<String> tutorIds);
+
+    // Chỉ ghi trustScore để không đè lên counter mà transaction khác vừa cộng
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE TutorProfile t SET t.trustScore = :trustScore, t.lastTrustScoreUpdatedAt = :updatedAt " +
+            "WHERE t.id = :tutorId")
+    int updateTrustScore(@Param("tutorId") String tutorId,
+                         @Param("trustScore") double trustScore,
+                         @Param("updatedAt") LocalDateTime updatedAt);
+
+    // [tutorId, totalBookings, totalCompletedBookings, totalCancelledBookings] cho job đối soát
+    @Query("SELECT t.id, t.totalBookings, t.totalCompletedBookings, t.totalCancelledBookings FROM TutorProfile t")
+    List<Object[]> findAllBookingCounters();
 
+    // Đếm lại từ bảng bookings cho các gia sư bị lệch, trong cùng một câu UPDATE
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE TutorProfile t SET " +
+            "t.totalBookings = CAST((SELECT COUNT(b) FROM Booking b WHERE b.tutorId = t.id) AS Integer), " +
+            "t.totalCompletedBookings = CAST((SELECT COUNT(b) FROM Booking b " +
+            "WHERE b.tutorId = t.id AND b.status = :completed) AS Integer), " +
+            "t.totalCancelledBookings = CAST((SELECT COUNT(b) FROM Booking b " +
+            "WHERE b.tutorId = t.id AND b.status = :cancelled) AS Integer) " +
+            "WHERE t.id IN :tutorIds")
+    int recountBookingCounters(@Param("tutorIds") Collection<String> tutorIds,
+                               @Param("completed") BookingStatus completed,
+                               @Param("cancelled") BookingStatus cancelled);
 }
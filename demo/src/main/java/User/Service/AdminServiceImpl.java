@@ -2,6 +2,8 @@ package User.Service;
 
 import Class.Repository.ClassRepository;
 import Notification.Service.NotificationService;
+import Support.Index.TutorChangedEvent;
+import Support.Outbox.OutboxPublisher;
 import User.DTO.Request.ClassFilterRequest;
 import User.DTO.Response.ClassAdminResponse;
 import User.DTO.Response.TutorPendingResponse;
@@ -42,6 +44,9 @@ public class AdminServiceImpl implements AdminService {
     @Autowired
     private NotificationService notificationService; // Để gửi thông báo giống createNotification trong file .ts
 
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
     @Override
     public List<TutorPendingResponse> getPendingTutors() {
         return tutorProfileRepository.findPendingTutors().stream()
@@ -75,6 +80,7 @@ public class AdminServiceImpl implements AdminService {
 
         tutorProfileRepository.save(tutor);
         userRepository.save(user);
+        outboxPublisher.broadcast(new TutorChangedEvent(tutorId));
 
         // Gửi thông báo
         notificationService.createNotification(user.getId(), "Hồ sơ gia sư của bạn đã được phê duyệt.");
@@ -91,6 +97,7 @@ public class AdminServiceImpl implements AdminService {
         tutor.setVerificationReviewedAt(LocalDateTime.now());
 
         tutorProfileRepository.save(tutor);
+        outboxPublisher.broadcast(new TutorChangedEvent(tutorId));
 
         // Gửi thông báo kèm lý do
         notificationService.createNotification(tutor.getUser().getId(), "Hồ sơ gia sư của bạn bị từ chối: " + note);
@@ -1,5 +1,7 @@
 package User.Service;
 
+import Support.Outbox.OutboxPublisher;
+import Support.Preference.StudentPreferenceChangedEvent;
 import User.DTO.Request.StudentUpdateRequest;
 import User.DTO.Response.StudentProfileResponse;
 import User.DTO.Response.UserResponse;
@@ -17,6 +19,9 @@ public class StudentServiceImpl implements StudentService{
     @Autowired
     private StudentProfileRepository studentProfileRepository;
 
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
     @Override
     public StudentProfileResponse getMyProfile() {
         UserResponse userResponse = (UserResponse) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
@@ -39,7 +44,9 @@ public class StudentServiceImpl implements StudentService{
         if (dto.getNotes() != null) student.setNotes(dto.getNotes());
 
         // 3. Lưu và trả về kết quả
-        return mapToResponse(studentProfileRepository.save(student));
+        StudentProfile saved = studentProfileRepository.save(student);
+        outboxPublisher.broadcast(new StudentPreferenceChangedEvent(saved.getId()));
+        return mapToResponse(saved);
     }
 
     private StudentProfileResponse mapToResponse(StudentProfile entity) {
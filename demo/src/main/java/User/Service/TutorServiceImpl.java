@@ -1,6 +1,9 @@
 package User.Service;
 
 import Review.Dto.Response.ReviewResponse;
+import Support.Index.TutorAvailabilityChangedEvent;
+import Support.Index.TutorChangedEvent;
+import Support.Outbox.OutboxPublisher;
 import User.DTO.Request.AvailabilityRequest;
 import User.DTO.Request.TutorUpdateRequest;
 import User.DTO.Request.UnavailabilityRequest;
@@ -43,6 +46,9 @@ public class TutorServiceImpl implements TutorService {
     @Autowired
     private TutorAvailabilityRepository tutorAvailabilityRepository;
 
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
     @Autowired
 
     @Override
@@ -54,7 +60,9 @@ public class TutorServiceImpl implements TutorService {
     }
 
     @Override
+    @Transactional
     public TutorProfileResponse updateProfile(TutorUpdateRequest request) {
+        validateCoordinates(request.getLatitude(), request.getLongitude());
         UserResponse user = (UserResponse) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         User user1 = userMapper.toUser(user);
         TutorProfile tutorProfile = tutorProfileRepository.findByUserId(user1.getId());
@@ -67,12 +75,17 @@ public class TutorServiceImpl implements TutorService {
         tutorProfile.setHourlyRateMin(request.getHourlyRateMin());
         tutorProfile.setTeachingModes(request.getTeachingModes());
         tutorProfile.setDistrict(request.getDistrict());
+        tutorProfile.setLatitude(request.getLatitude());
+        tutorProfile.setLongitude(request.getLongitude());
         tutorProfile.setYearsOfExperience(request.getYearsOfExperience());
+        tutorProfileRepository.save(tutorProfile);
+        outboxPublisher.broadcast(new TutorChangedEvent(tutorProfile.getId()));
 
         return tutorProfileMapper.toResponse(tutorProfile);
     }
 
     @Override
+    @Transactional
     public TutorProfileResponse submitVerification(VerificationSubmitRequest request) {
         UserResponse user = (UserResponse) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         User user1 = userMapper.toUser(user);
@@ -84,6 +97,8 @@ public class TutorServiceImpl implements TutorService {
         tutorProfile.setProofDocuments(request.getProofDocuments().toString());
         tutorProfile.setCertificatesDetail(request.getCertificatesDetail().toString());
         tutorProfile.setVerificationStatus(VerificationStatus.PENDING);
+        tutorProfileRepository.save(tutorProfile);
+        outboxPublisher.broadcast(new TutorChangedEvent(tutorProfile.getId()));
 
         return tutorProfileMapper.toResponse(tutorProfile);
     }
@@ -94,7 +109,7 @@ public class TutorServiceImpl implements TutorService {
         UserResponse user = (UserResponse) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         User user1 = userMapper.toUser(user);
         TutorProfile tutorProfile = tutorProfileRepository.findByUserId(user1.getId());
-        tutorAvailabilityRepository.deleteByTutorId(user1.getId());
+        tutorAvailabilityRepository.deleteByTutorId(tutorProfile.getId());
 
         if (dtos != null && !dtos.isEmpty()) {
             List<TutorAvailability> newEntries = dtos.stream()
@@ -112,12 +127,29 @@ public class TutorServiceImpl implements TutorService {
             tutorAvailabilityRepository.saveAll(newEntries);
         }
 
-        return tutorAvailabilityRepository.findByTutorIdOrderByDayOfWeekAscStartMinuteAsc(user1.getId())
+        // Dựng lại bitmap lịch rảnh trong TutorMatchIndex sau khi commit
+        outboxPublisher.broadcast(new TutorAvailabilityChangedEvent(tutorProfile.getId()));
+
+        return tutorAvailabilityRepository.findByTutorIdOrderByDayOfWeekAscStartMinuteAsc(tutorProfile.getId())
                 .stream()
                 .map(this::mapToAvailabilityResponse)
                 .collect(Collectors.toList());
     }
 
+    // Tọa độ phải có đủ cả hai (hoặc bỏ trống cả hai) và nằm trong miền hợp lệ
+    private static void validateCoordinates(Double latitude, Double longitude) {
+        if ((latitude == null) != (longitude == null)) {
+            throw new RuntimeException("Latitude and longitude must be provided together");
+        }
+        if (latitude == null) return;
+        if (latitude < -90 || latitude > 90 || latitude.isNaN()) {
+            throw new RuntimeException("Latitude must be between -90 and 90");
+        }
+        if (longitude < -180 || longitude > 180 || longitude.isNaN()) {
+            throw new RuntimeException("Longitude must be between -180 and 180");
+        }
+    }
+
     private AvailabilityResponse mapToAvailabilityResponse(TutorAvailability entity) {
         // Chuyển đổi Entity ngược lại DTO
         AvailabilityResponse dto = new AvailabilityResponse();
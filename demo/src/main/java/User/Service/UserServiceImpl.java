@@ -1,5 +1,7 @@
 package User.Service;
 
+import Support.Index.TutorChangedEvent;
+import Support.Outbox.OutboxPublisher;
 import User.DTO.Response.UserResponse;
 import User.Entity.Status;
 import User.Entity.User;
@@ -9,6 +11,7 @@ import com.nimbusds.jose.proc.SecurityContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -20,6 +23,9 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
 
     @Override
     public UserResponse getMyInfo() {
@@ -35,11 +41,16 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional
     public UserResponse updateStatus(String id, String status) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("id not found"));
 
         user.setStatus(Status.valueOf(status));
+        userRepository.save(user);
+        if (user.getTutorProfile() != null) {
+            outboxPublisher.broadcast(new TutorChangedEvent(user.getTutorProfile().getId()));
+        }
 
         return userMapper.toUserResponse(user);
     }
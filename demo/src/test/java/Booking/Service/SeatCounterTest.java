@@ -0,0 +1,87 @@
+package Booking.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeatCounterTest {
+
+    @Test
+    void acquiresExactlyTheSeatCountAcrossStripes() {
+        // 10 chỗ chia cho 8 stripe: stripe lệch nhau vẫn phải phát đủ 10 permit
+        SeatAllocator.SeatCounter counter = new SeatAllocator.SeatCounter(8, 10);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(counter.tryAcquire(), "seat " + i);
+        }
+        assertFalse(counter.tryAcquire());
+    }
+
+    @Test
+    void noSeatsMeansFull() {
+        assertFalse(new SeatAllocator.SeatCounter(4, 0).tryAcquire());
+        assertFalse(new SeatAllocator.SeatCounter(4, -3).tryAcquire());
+    }
+
+    @Test
+    void releaseReturnsOnePermit() {
+        SeatAllocator.SeatCounter counter = new SeatAllocator.SeatCounter(4, 1);
+        assertTrue(counter.tryAcquire());
+        assertFalse(counter.tryAcquire());
+
+        counter.release();
+
+        assertTrue(counter.tryAcquire());
+        assertFalse(counter.tryAcquire());
+    }
+
+    @Test
+    void drainEmptiesEveryStripe() {
+        SeatAllocator.SeatCounter counter = new SeatAllocator.SeatCounter(8, 100);
+
+        counter.drain();
+
+        assertFalse(counter.tryAcquire());
+    }
+
+    @Test
+    void concurrentAcquiresNeverExceedCapacity() throws Exception {
+        int seats = 100;
+        int threads = 16;
+        int attemptsPerThread = 50;
+        SeatAllocator.SeatCounter counter = new SeatAllocator.SeatCounter(8, seats);
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        if (counter.tryAcquire()) acquired.incrementAndGet();
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(seats, acquired.get());
+        assertFalse(counter.tryAcquire());
+    }
+}
@@ -0,0 +1,111 @@
+package Support.Index;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntervalTimelineTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 3, 10, 0, 0);
+
+    @Test
+    void emptyTimelineNeverOverlaps() {
+        IntervalTimeline timeline = timeline();
+
+        assertEquals(0, timeline.size());
+        assertFalse(timeline.overlaps(at(8), at(10), null));
+    }
+
+    @Test
+    void rangesAreHalfOpen() {
+        IntervalTimeline timeline = timeline(row(10, 12, "A"));
+
+        // Chạm đầu hoặc cuối không tính là trùng
+        assertFalse(timeline.overlaps(at(12), at(14), null));
+        assertFalse(timeline.overlaps(at(8), at(10), null));
+        assertTrue(timeline.overlaps(at(11), at(13), null));
+        assertTrue(timeline.overlaps(at(9), at(11), null));
+        assertTrue(timeline.overlaps(at(10), at(12), null));
+    }
+
+    @Test
+    void excludedOwnerIsIgnored() {
+        IntervalTimeline timeline = timeline(row(10, 12, "A"));
+
+        assertFalse(timeline.overlaps(at(10), at(12), "A"));
+        assertTrue(timeline.overlaps(at(10), at(12), "B"));
+    }
+
+    @Test
+    void otherOwnerStillOverlapsWhenExcludedOwnerCoversRange() {
+        IntervalTimeline timeline = timeline(row(9, 13, "A"), row(10, 11, "B"));
+
+        assertTrue(timeline.overlaps(at(10), at(11), "A"));
+        // B đã kết thúc lúc 11 nên chỉ còn khoảng của A (bị bỏ qua)
+        assertFalse(timeline.overlaps(at(12), at(13), "A"));
+    }
+
+    @Test
+    void longEarlierIntervalIsFoundBehindShorterOnes() {
+        // Rows không theo thứ tự start: of() phải tự sắp xếp
+        IntervalTimeline timeline = timeline(
+                row(15, 16, "C"), row(9, 10, "B"), row(8, 20, "A"));
+
+        assertEquals(3, timeline.size());
+        assertTrue(timeline.overlaps(at(12), at(13), null));
+        assertFalse(timeline.overlaps(at(12), at(13), "A"));
+        assertTrue(timeline.overlaps(at(15), at(17), "A"));
+        assertFalse(timeline.overlaps(at(20), at(22), null));
+    }
+
+    @Test
+    void matchesBruteForceOnRandomTimelines() {
+        Random random = new Random(42);
+        String[] owners = {"A", "B", "C", null};
+        for (int round = 0; round < 200; round++) {
+            List<Object[]> rows = new ArrayList<>();
+            for (int i = 0, n = random.nextInt(12); i < n; i++) {
+                int start = random.nextInt(40);
+                rows.add(row(start, start + 1 + random.nextInt(10), owners[random.nextInt(owners.length)]));
+            }
+            IntervalTimeline timeline = IntervalTimeline.of(rows);
+
+            for (int query = 0; query < 50; query++) {
+                int start = random.nextInt(50);
+                int end = start + 1 + random.nextInt(6);
+                String excluded = owners[random.nextInt(owners.length)];
+                assertEquals(bruteForce(rows, start, end, excluded),
+                        timeline.overlaps(at(start), at(end), excluded));
+            }
+        }
+    }
+
+    private static boolean bruteForce(List<Object[]> rows, int startHour, int endHour, String excludedOwner) {
+        LocalDateTime start = DAY.plusHours(startHour);
+        LocalDateTime end = DAY.plusHours(endHour);
+        for (Object[] row : rows) {
+            if (excludedOwner != null && excludedOwner.equals(row[2])) continue;
+            if (((LocalDateTime) row[0]).isBefore(end) && ((LocalDateTime) row[1]).isAfter(start)) return true;
+        }
+        return false;
+    }
+
+    private static IntervalTimeline timeline(Object[]... rows) {
+        return IntervalTimeline.of(List.of(rows));
+    }
+
+    private static Object[] row(int startHour, int endHour, String owner) {
+        return new Object[]{DAY.plusHours(startHour), DAY.plusHours(endHour), owner};
+    }
+
+    private static long at(int hour) {
+        return IntervalTimeline.epochSecond(DAY.plusHours(hour));
+    }
+}
@@ -0,0 +1,82 @@
+package Support.Index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopKTest {
+
+    @Test
+    void keepsHighestScoresInDescendingOrder() {
+        TopK top = new TopK(3);
+        double[] scores = {0.4, 0.9, 0.1, 0.7, 0.3, 0.8, 0.2};
+        for (int slot = 0; slot < scores.length; slot++) {
+            top.offer(slot, scores[slot]);
+        }
+
+        top.sortDescending();
+
+        assertEquals(3, top.size());
+        assertArrayEquals(new int[]{1, 5, 3}, slots(top));
+        assertEquals(0.9, top.scoreAt(0));
+        assertEquals(0.8, top.scoreAt(1));
+        assertEquals(0.7, top.scoreAt(2));
+    }
+
+    @Test
+    void evictsCurrentMinimumWhenFull() {
+        TopK top = new TopK(2);
+        top.offer(0, 0.5);
+        assertFalse(top.isFull());
+        top.offer(1, 0.6);
+        assertTrue(top.isFull());
+        assertEquals(0.5, top.minScore());
+
+        // Thấp hơn hoặc bằng điểm thứ K: bỏ qua
+        top.offer(2, 0.4);
+        top.offer(3, 0.5);
+        assertEquals(0.5, top.minScore());
+
+        // Cao hơn: đẩy slot 0 ra, điểm thứ K mới là 0.6
+        top.offer(4, 0.9);
+        assertEquals(0.6, top.minScore());
+
+        top.sortDescending();
+        assertArrayEquals(new int[]{4, 1}, slots(top));
+    }
+
+    @Test
+    void zeroCapacityKeepsNothing() {
+        TopK top = new TopK(0);
+        top.offer(0, 1.0);
+
+        assertEquals(0, top.size());
+        assertEquals(Double.NEGATIVE_INFINITY, top.minScore());
+    }
+
+    @Test
+    void mergeKeepsBestOfBothHeaps() {
+        TopK left = new TopK(2);
+        left.offer(0, 0.3);
+        left.offer(1, 0.9);
+        TopK right = new TopK(2);
+        right.offer(2, 0.5);
+        right.offer(3, 0.1);
+
+        left.merge(right);
+        left.sortDescending();
+
+        assertArrayEquals(new int[]{1, 2}, slots(left));
+    }
+
+    private static int[] slots(TopK top) {
+        int[] slots = new int[top.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = top.slotAt(i);
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,39 @@
+package Support.Service;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Dựng các bean matching ngoài Spring: repository là proxy trả về rỗng,
+ * field @Value được gán bằng reflection.
+ */
+final class BenchSupport {
+
+    private BenchSupport() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T emptyRepository(java.lang.Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new java.lang.Class<?>[]{type}, (proxy, method, args) -> {
+            java.lang.Class<?> returnType = method.getReturnType();
+            if (List.class.isAssignableFrom(returnType)) return List.of();
+            if (Optional.class.equals(returnType)) return Optional.empty();
+            if (returnType == long.class) return 0L;
+            if (returnType == int.class) return 0;
+            if (returnType == boolean.class) return false;
+            return null;
+        });
+    }
+
+    static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + name, e);
+        }
+    }
+}
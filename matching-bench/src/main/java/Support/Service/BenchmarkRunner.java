@@ -0,0 +1,37 @@
+package Support.Service;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * java -jar target/benchmarks.jar [tham số JMH]
+ * Mặc định bật -prof gc và ghi kết quả JSON vào results/matching-&lt;thời gian&gt;.json
+ * để so sánh giữa các lần chạy (VD: bằng jmh.morethan.io). Tham số dòng lệnh ghi đè mặc định.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        new File("results").mkdirs();
+
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(cli)
+                .resultFormat(cli.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(cli.getResult().orElse("results/matching-" + timestamp + ".json"));
+        if (cli.getIncludes().isEmpty()) builder.include("Support\\.Service\\..*Benchmark");
+        if (cli.getProfilers().isEmpty()) builder.addProfiler(GCProfiler.class);
+
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,192 @@
+package Support.Service;
+
+import Booking.Repository.BookingRepository;
+import Subject.Repository.SubjectRepository;
+import Support.Dto.Request.TutorFilterRequest;
+import Support.Dto.Response.TutorMatchResponse;
+import Support.Index.MatchQuery;
+import Support.Index.MatchResultCache;
+import Support.Index.MatchSnapshotCache;
+import Support.Index.TopK;
+import Support.Index.TutorMatchIndex;
+import Support.Preference.StudentPreferenceCache;
+import Support.Ranking.FormulaRanker;
+import Support.Ranking.LinearRanker;
+import Support.Ranking.Ranker;
+import Support.Ranking.RankerRegistry;
+import User.DTO.Response.TutorProfileResponse;
+import User.Entity.TutorProfile;
+import User.Repository.StudentProfileRepository;
+import User.Repository.TutorAvailabilityRepository;
+import User.Repository.TutorProfileRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đo từng bước của matching trên index trong bộ nhớ: chấm điểm, chọn/sắp xếp top K,
+ * map DTO, và toàn bộ searchTutors (không qua cache kết quả).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MatchingBenchmark {
+
+    private static final long SEED = 20240601L;
+    private static final int LIMIT = 20;
+
+    @Param({"1000", "10000", "100000"})
+    private int tutors;
+
+    @Param({"4"})
+    private int classesPerTutor;
+
+    private TutorMatchIndex index;
+    private MatchingServiceImpl service;
+    private ForkJoinPool pool;
+
+    private int[] allCandidates;
+    private MatchQuery query;
+    private Ranker formulaRanker;
+    private Ranker linearRanker;
+    private double[] scores;
+    private int[] winners;
+
+    private TutorFilterRequest nationwide;
+    private TutorFilterRequest cityDistrict;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        index = new TutorMatchIndex(
+                BenchSupport.emptyRepository(TutorProfileRepository.class),
+                BenchSupport.emptyRepository(SubjectRepository.class),
+                BenchSupport.emptyRepository(TutorAvailabilityRepository.class),
+                event -> { });
+        List<TutorProfile> population = SyntheticPopulation.generate(tutors, classesPerTutor, SEED);
+        population.forEach(index::upsert);
+
+        pool = new ForkJoinPool();
+        // Cache kết quả kích thước 0: mọi lần gọi đều tính lại
+        service = new MatchingServiceImpl(index, null, new MatchSnapshotCache(1, 1),
+                new MatchResultCache(0, 1), pool, new MatchingMetrics(new SimpleMeterRegistry()),
+                new RankerRegistry("", 0),
+                new StudentPreferenceCache(BenchSupport.emptyRepository(StudentProfileRepository.class),
+                        BenchSupport.emptyRepository(BookingRepository.class), index, 1, 1));
+        BenchSupport.setField(service, "parallelThreshold", 20_000);
+        BenchSupport.setField(service, "parallelChunkSize", 4096);
+        BenchSupport.setField(service, "semanticCandidates", 200);
+        BenchSupport.setField(service, "snapshotSize", 500);
+
+        nationwide = TutorFilterRequest.builder()
+                .subjectId("subject-7")
+                .gradeLevel("lớp 10")
+                .priceMin(150_000.0)
+                .priceMax(250_000.0)
+                .build();
+        cityDistrict = TutorFilterRequest.builder()
+                .subjectId("subject-7")
+                .gradeLevel("THCS")
+                .city(SyntheticPopulation.CITIES[0])
+                .district("District 1")
+                .priceMax(300_000.0)
+                .build();
+
+        index.read(() -> {
+            allCandidates = index.candidates(null, null);
+            query = index.compileQuery(nationwide.getSubjectId(), nationwide.getGradeLevel(),
+                    nationwide.getPriceMin(), nationwide.getPriceMax(), false, null, false,
+                    null, null, null);
+            return null;
+        });
+
+        // Cùng trọng số với công thức gốc, chỉ khác implementation
+        formulaRanker = new FormulaRanker();
+        Path weights = Files.createTempFile("ranker", ".properties");
+        Files.writeString(weights, "version=bench\n");
+        linearRanker = LinearRanker.load(weights);
+        Files.delete(weights);
+
+        Random random = new Random(SEED);
+        scores = new double[allCandidates.length];
+        for (int i = 0; i < scores.length; i++) scores[i] = random.nextDouble() * 100;
+
+        TopK top = index.read(() -> service.scoreCandidates(
+                allCandidates, 0, allCandidates.length, query, LIMIT, formulaRanker));
+        top.sortDescending();
+        winners = new int[top.size()];
+        for (int i = 0; i < winners.length; i++) winners[i] = top.slotAt(i);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    // --- Chấm điểm: baseScore + matchBonus cho mọi ứng viên, giữ top K ---
+
+    @Benchmark
+    public TopK scoreAllCandidates() {
+        return index.read(() -> service.scoreCandidates(
+                allCandidates, 0, allCandidates.length, query, LIMIT, formulaRanker));
+    }
+
+    @Benchmark
+    public TopK scoreAllCandidatesLinear() {
+        return index.read(() -> service.scoreCandidates(
+                allCandidates, 0, allCandidates.length, query, LIMIT, linearRanker));
+    }
+
+    // --- Sắp xếp: heap top K so với sắp xếp toàn bộ (cách làm trước đây) ---
+
+    @Benchmark
+    public TopK selectTopKWithHeap() {
+        TopK top = new TopK(LIMIT);
+        for (int i = 0; i < scores.length; i++) top.offer(i, scores[i]);
+        top.sortDescending();
+        return top;
+    }
+
+    @Benchmark
+    public double[] sortAllScores() {
+        double[] copy = Arrays.copyOf(scores, scores.length);
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    // --- Map DTO cho K gia sư thắng ---
+
+    @Benchmark
+    public void mapWinnersToDto(Blackhole blackhole) {
+        index.read(() -> {
+            for (int slot : winners) {
+                TutorProfileResponse response = service.mapToTutorResponse(slot);
+                blackhole.consume(response);
+            }
+            return null;
+        });
+    }
+
+    // --- End-to-end (không qua MatchResultCache) ---
+
+    @Benchmark
+    public List<TutorMatchResponse> searchTutorsNationwide() {
+        return service.searchTutors(nationwide);
+    }
+
+    @Benchmark
+    public List<TutorMatchResponse> searchTutorsCityDistrict() {
+        return service.searchTutors(cityDistrict);
+    }
+}
@@ -0,0 +1,67 @@
+package Support.Service;
+
+import Class.Entity.Class;
+import Class.Entity.ClassStatus;
+import Support.Index.GradeMask;
+import User.Entity.TutorProfile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sinh gia sư + lớp giả lập với seed cố định để mọi lần chạy dùng cùng dữ liệu.
+ */
+final class SyntheticPopulation {
+
+    static final String[] CITIES = {
+            "Ha Noi", "Ho Chi Minh", "Da Nang", "Hai Phong", "Can Tho",
+            "Hue", "Nha Trang", "Vung Tau", "Bien Hoa", "Quy Nhon"
+    };
+    static final int DISTRICTS_PER_CITY = 8;
+    static final int SUBJECTS = 40;
+
+    private static final String[] GRADES = {
+            "Lớp 1-5", "Lớp 6", "Lớp 7", "Lớp 8", "Lớp 9", "THCS", "Lớp 10", "Lớp 11", "Lớp 12",
+            "Lớp 10 - 12", "THPT", "Đại học"
+    };
+
+    private SyntheticPopulation() {
+    }
+
+    static List<TutorProfile> generate(int tutors, int classesPerTutor, long seed) {
+        Random random = new Random(seed);
+        List<TutorProfile> result = new ArrayList<>(tutors);
+        for (int t = 0; t < tutors; t++) {
+            String tutorId = "tutor-" + t;
+            List<Class> classes = new ArrayList<>(classesPerTutor);
+            for (int c = 0; c < classesPerTutor; c++) {
+                int subject = random.nextInt(SUBJECTS);
+                String grade = GRADES[random.nextInt(GRADES.length)];
+                classes.add(Class.builder()
+                        .id(tutorId + "-class-" + c)
+                        .tutorId(tutorId)
+                        .subjectId("subject-" + subject)
+                        .subjectDenseId(subject)
+                        .title("Class " + c)
+                        .targetGrade(grade)
+                        .gradeMask(GradeMask.parse(grade))
+                        .pricePerHour(100_000 + 10_000.0 * random.nextInt(41))
+                        .status(random.nextInt(10) < 8 ? ClassStatus.PUBLISHED : ClassStatus.DRAFT)
+                        .build());
+            }
+            result.add(TutorProfile.builder()
+                    .id(tutorId)
+                    .userId("user-" + t)
+                    .bio("Synthetic tutor " + t)
+                    .city(CITIES[random.nextInt(CITIES.length)])
+                    .district("District " + (1 + random.nextInt(DISTRICTS_PER_CITY)))
+                    .trustScore(random.nextDouble() * 100)
+                    .averageRating(1 + random.nextDouble() * 4)
+                    .totalCompletedBookings(random.nextInt(200))
+                    .classes(classes)
+                    .build());
+        }
+        return result;
+    }
+}